@@ -0,0 +1,54 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.BatchBuffer;
+import io.funtom.util.concurrent.ConcurrentBuffer;
+import io.funtom.util.concurrent.OverflowPolicy;
+import io.funtom.util.concurrent.RingConcurrentBuffer;
+import io.funtom.util.concurrent.StripedConcurrentBuffer;
+
+/**
+ * The buffer implementation under test.
+ */
+public enum BufferType {
+
+    LINKED {
+        @Override
+        <T> BatchBuffer<T> create(int capacity) {
+            return new ConcurrentBuffer<>();
+        }
+    },
+
+    LINKED_BOUNDED {
+        @Override
+        <T> BatchBuffer<T> create(int capacity) {
+            return new ConcurrentBuffer<>(capacity, OverflowPolicy.BLOCK);
+        }
+    },
+
+    RING {
+        @Override
+        <T> BatchBuffer<T> create(int capacity) {
+            return new RingConcurrentBuffer<>(capacity, OverflowPolicy.BLOCK);
+        }
+    },
+
+    STRIPED {
+        @Override
+        <T> BatchBuffer<T> create(int capacity) {
+            return new StripedConcurrentBuffer<>();
+        }
+    },
+
+    /**
+     * The capacity is split between a stripe per available processor.
+     */
+    STRIPED_RING {
+        @Override
+        <T> BatchBuffer<T> create(int capacity) {
+            int stripes = Runtime.getRuntime().availableProcessors();
+            return new StripedConcurrentBuffer<>(stripes, Math.max(1, capacity / stripes), OverflowPolicy.BLOCK);
+        }
+    };
+
+    abstract <T> BatchBuffer<T> create(int capacity);
+}
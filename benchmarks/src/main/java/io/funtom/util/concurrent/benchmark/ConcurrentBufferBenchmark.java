@@ -0,0 +1,94 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.BatchBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producers add to the buffer while a single consumer drains it.
+ * The number of producers is swept from the command line, e.g. {@code -tg 1,1}, {@code -tg 4,1}, {@code -tg 16,1}.
+ * The drainTo group drains into a reused list instead of getting a new list per removal, run with {@code -prof gc} to compare the allocation rates.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentBufferBenchmark {
+
+    @Param({"16"})
+    public int batchSize;
+
+    @Param({"LINKED", "LINKED_BOUNDED", "RING", "STRIPED", "STRIPED_RING"})
+    public BufferType bufferType;
+
+    /**
+     * The capacity of the bounded buffers, which block their producers when full.
+     */
+    @Param({"65536"})
+    public int capacity;
+
+    private final Integer element = 42;
+    private BatchBuffer<Integer> buffer;
+    private List<Integer> batch;
+    private List<Integer> drained;
+
+    @Setup
+    public void setup() {
+        buffer = bufferType.create(capacity);
+        batch = new ArrayList<>(batchSize);
+        drained = new ArrayList<>(capacity);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(i);
+        }
+    }
+
+    @Benchmark
+    @Group("add")
+    @GroupThreads(1)
+    public void add_producer() {
+        buffer.add(element);
+    }
+
+    @Benchmark
+    @Group("add")
+    @GroupThreads(1)
+    public void add_consumer(Blackhole bh) {
+        bh.consume(buffer.getAndRemoveAll());
+    }
+
+    @Benchmark
+    @Group("addAll")
+    @GroupThreads(1)
+    public void addAll_producer() {
+        buffer.addAll(batch);
+    }
+
+    @Benchmark
+    @Group("addAll")
+    @GroupThreads(1)
+    public void addAll_consumer(Blackhole bh) {
+        bh.consume(buffer.getAndRemoveAll());
+    }
+
+    @Benchmark
+    @Group("drainTo")
+    @GroupThreads(1)
+    public void drainTo_producer() {
+        buffer.add(element);
+    }
+
+    @Benchmark
+    @Group("drainTo")
+    @GroupThreads(1)
+    public int drainTo_consumer() {
+        int removed = buffer.drainTo(drained);
+        drained.clear();
+        return removed;
+    }
+}
@@ -0,0 +1,42 @@
+package io.funtom.util.concurrent.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How benchmark threads pick the key of the next operation.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every operation, on every thread, uses the same key.
+     */
+    HOT {
+        @Override
+        int nextKeyIndex(int numberOfKeys) {
+            return 0;
+        }
+    },
+
+    /**
+     * Keys are picked uniformly at random from the whole key set.
+     */
+    UNIFORM {
+        @Override
+        int nextKeyIndex(int numberOfKeys) {
+            return ThreadLocalRandom.current().nextInt(numberOfKeys);
+        }
+    };
+
+    abstract int nextKeyIndex(int numberOfKeys);
+
+    /**
+     * Keys are boxed once up front, so the allocation rate reported by the gc profiler belongs to the executor under test.
+     */
+    static Integer[] createKeys(int numberOfKeys) {
+        Integer[] keys = new Integer[numberOfKeys];
+        for (int i = 0; i < numberOfKeys; i++) {
+            keys[i] = Integer.valueOf(i * 31 + 7);
+        }
+        return keys;
+    }
+}
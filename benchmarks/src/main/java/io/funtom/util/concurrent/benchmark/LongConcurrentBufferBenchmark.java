@@ -0,0 +1,66 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.ConcurrentBuffer;
+import io.funtom.util.concurrent.LongConcurrentBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producers add long ids while a single consumer drains them into a reused batch,
+ * comparing the primitive buffer with a buffer of boxed longs. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class LongConcurrentBufferBenchmark {
+
+    private final LongConcurrentBuffer primitive = new LongConcurrentBuffer();
+    private final ConcurrentBuffer<Long> boxed = new ConcurrentBuffer<>();
+    private final long[] primitiveBatch = new long[4096];
+    private final List<Long> boxedBatch = new ArrayList<>(4096);
+
+    /**
+     * Ids are per producer thread, so producers do not contend on a shared counter.
+     * They grow past the range of the cached boxed longs, so boxing really allocates.
+     */
+    @State(Scope.Thread)
+    public static class Ids {
+        long next = 1 << 20;
+    }
+
+    @Benchmark
+    @Group("primitive")
+    @GroupThreads(1)
+    public void primitive_producer(Ids ids) {
+        primitive.add(ids.next++);
+    }
+
+    @Benchmark
+    @Group("primitive")
+    @GroupThreads(1)
+    public int primitive_consumer() {
+        return primitive.drainTo(primitiveBatch);
+    }
+
+    @Benchmark
+    @Group("boxed")
+    @GroupThreads(1)
+    public void boxed_producer(Ids ids) {
+        boxed.add(ids.next++);
+    }
+
+    @Benchmark
+    @Group("boxed")
+    @GroupThreads(1)
+    public int boxed_consumer() {
+        int removed = boxed.drainTo(boxedBatch, 4096);
+        boxedBatch.clear();
+        return removed;
+    }
+}
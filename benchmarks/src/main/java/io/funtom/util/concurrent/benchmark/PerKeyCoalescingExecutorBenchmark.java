@@ -0,0 +1,62 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.PerKeyCoalescingExecutor;
+import io.funtom.util.concurrent.PerKeySynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counter increments on per-key counters, executed one by one with {@link PerKeySynchronizedExecutor},
+ * or coalesced into batches with {@link PerKeyCoalescingExecutor}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerKeyCoalescingExecutorBenchmark {
+
+    @Param({"HOT", "UNIFORM"})
+    public KeyDistribution distribution;
+
+    @Param({"4096"})
+    public int numberOfKeys;
+
+    private PerKeySynchronizedExecutor<Integer> synchronizedExecutor;
+    private PerKeyCoalescingExecutor<Integer, Integer, Long> coalescingExecutor;
+    private Integer[] keys;
+    private long[] counters;
+
+    @Setup
+    public void setup() {
+        synchronizedExecutor = new PerKeySynchronizedExecutor<>();
+        // The input of a task is the index of its counter
+        coalescingExecutor = new PerKeyCoalescingExecutor<>((key, inputs) -> {
+            List<Long> results = new ArrayList<>(inputs.size());
+            for (Integer i : inputs) {
+                results.add(++counters[i]);
+            }
+            return results;
+        });
+        keys = KeyDistribution.createKeys(numberOfKeys);
+        counters = new long[numberOfKeys];
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long synchronizedContended() {
+        int i = distribution.nextKeyIndex(numberOfKeys);
+        return synchronizedExecutor.execute(keys[i], () -> ++counters[i]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long coalescingContended() {
+        int i = distribution.nextKeyIndex(numberOfKeys);
+        return coalescingExecutor.execute(keys[i], i);
+    }
+}
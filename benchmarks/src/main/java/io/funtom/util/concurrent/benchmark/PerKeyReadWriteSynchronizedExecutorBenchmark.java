@@ -0,0 +1,63 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.PerKeyReadWriteSynchronizedExecutor;
+import io.funtom.util.concurrent.ReadWriteLockPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerKeyReadWriteSynchronizedExecutorBenchmark {
+
+    @Param({"HOT", "UNIFORM"})
+    public KeyDistribution distribution;
+
+    @Param({"50", "90", "99"})
+    public int readPercent;
+
+    @Param({"NON_FAIR", "FAIR", "WRITER_PREFERRING", "PHASE_FAIR", "COMPACT", "OPTIMISTIC"})
+    public ReadWriteLockPolicy policy;
+
+    @Param({"4096"})
+    public int numberOfKeys;
+
+    @Param({"32"})
+    public int concurrencyLevel;
+
+    private PerKeyReadWriteSynchronizedExecutor<Integer> executor;
+    private Integer[] keys;
+    private long[] counters;
+
+    @Setup
+    public void setup() {
+        executor = new PerKeyReadWriteSynchronizedExecutor<>(concurrencyLevel, Object::hashCode, policy);
+        keys = KeyDistribution.createKeys(numberOfKeys);
+        counters = new long[numberOfKeys];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return execute();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contended() {
+        return execute();
+    }
+
+    private long execute() {
+        int i = distribution.nextKeyIndex(numberOfKeys);
+        if (ThreadLocalRandom.current().nextInt(100) < readPercent) {
+            return executor.readExecute(keys[i], () -> counters[i]);
+        }
+        return executor.writeExecute(keys[i], () -> ++counters[i]);
+    }
+}
@@ -0,0 +1,60 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.ContentionMetrics;
+import io.funtom.util.concurrent.LockPolicy;
+import io.funtom.util.concurrent.PerKeySynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PerKeySynchronizedExecutorBenchmark {
+
+    @Param({"HOT", "UNIFORM"})
+    public KeyDistribution distribution;
+
+    @Param({"4096"})
+    public int numberOfKeys;
+
+    @Param({"32"})
+    public int concurrencyLevel;
+
+    @Param({"REENTRANT", "ADAPTIVE_SPIN", "COMPACT"})
+    public LockPolicy policy;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private PerKeySynchronizedExecutor<Integer> executor;
+    private Integer[] keys;
+    private long[] counters;
+
+    @Setup
+    public void setup() {
+        executor = new PerKeySynchronizedExecutor<>(concurrencyLevel, Object::hashCode, policy, metrics ? new ContentionMetrics<>() : null);
+        keys = KeyDistribution.createKeys(numberOfKeys);
+        counters = new long[numberOfKeys];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return execute();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contended() {
+        return execute();
+    }
+
+    private long execute() {
+        int i = distribution.nextKeyIndex(numberOfKeys);
+        return executor.execute(keys[i], () -> ++counters[i]);
+    }
+}
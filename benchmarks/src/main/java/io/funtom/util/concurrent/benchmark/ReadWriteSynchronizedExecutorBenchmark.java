@@ -0,0 +1,50 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.ReadWriteLockPolicy;
+import io.funtom.util.concurrent.ReadWriteSynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadWriteSynchronizedExecutorBenchmark {
+
+    @Param({"50", "90", "99", "100"})
+    public int readPercent;
+
+    @Param({"NON_FAIR", "FAIR", "WRITER_PREFERRING", "PHASE_FAIR", "COMPACT", "OPTIMISTIC"})
+    public ReadWriteLockPolicy policy;
+
+    private ReadWriteSynchronizedExecutor executor;
+    private long counter;
+
+    @Setup
+    public void setup() {
+        executor = new ReadWriteSynchronizedExecutor(policy);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return execute();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contended() {
+        return execute();
+    }
+
+    private long execute() {
+        if (ThreadLocalRandom.current().nextInt(100) < readPercent) {
+            return executor.readExecute(() -> counter);
+        }
+        return executor.writeExecute(() -> ++counter);
+    }
+}
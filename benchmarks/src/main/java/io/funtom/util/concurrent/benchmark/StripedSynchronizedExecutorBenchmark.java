@@ -0,0 +1,56 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.LockPolicy;
+import io.funtom.util.concurrent.StripedSynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedSynchronizedExecutorBenchmark {
+
+    @Param({"HOT", "UNIFORM"})
+    public KeyDistribution distribution;
+
+    @Param({"4096"})
+    public int numberOfKeys;
+
+    @Param({"64", "1024"})
+    public int numberOfStripes;
+
+    @Param({"REENTRANT", "ADAPTIVE_SPIN", "COMPACT"})
+    public LockPolicy policy;
+
+    private StripedSynchronizedExecutor<Integer> executor;
+    private Integer[] keys;
+    private long[] counters;
+
+    @Setup
+    public void setup() {
+        executor = new StripedSynchronizedExecutor<>(numberOfStripes, Object::hashCode, policy);
+        keys = KeyDistribution.createKeys(numberOfKeys);
+        counters = new long[numberOfKeys];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return execute();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contended() {
+        return execute();
+    }
+
+    private long execute() {
+        int i = distribution.nextKeyIndex(numberOfKeys);
+        return executor.execute(keys[i], () -> ++counters[i]);
+    }
+}
@@ -0,0 +1,39 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.LockPolicy;
+import io.funtom.util.concurrent.SynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynchronizedExecutorBenchmark {
+
+    @Param({"REENTRANT", "ADAPTIVE_SPIN", "COMPACT"})
+    public LockPolicy policy;
+
+    private SynchronizedExecutor executor;
+    private long counter;
+
+    @Setup
+    public void setup() {
+        executor = new SynchronizedExecutor(policy);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return executor.execute(() -> ++counter);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contended() {
+        return executor.execute(() -> ++counter);
+    }
+}
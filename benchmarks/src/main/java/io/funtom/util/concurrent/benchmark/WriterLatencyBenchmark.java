@@ -0,0 +1,56 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.ReadWriteLockPolicy;
+import io.funtom.util.concurrent.ReadWriteSynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readers continuously execute reads of a hot executor, while a single writer executes writes.
+ * Compare the sampled latency (p99, p99.99) of the writer between the policies, against the throughput of the readers.
+ * The number of readers is swept from the command line, e.g. {@code -tg 3,1}, {@code -tg 15,1}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class WriterLatencyBenchmark {
+
+    @Param({"NON_FAIR", "FAIR", "WRITER_PREFERRING", "PHASE_FAIR", "COMPACT"})
+    public ReadWriteLockPolicy policy;
+
+    /**
+     * The work done while holding the read lock, in Blackhole tokens.
+     */
+    @Param({"100"})
+    public int readTokens;
+
+    private ReadWriteSynchronizedExecutor executor;
+    private long counter;
+
+    @Setup
+    public void setup() {
+        executor = new ReadWriteSynchronizedExecutor(policy);
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public long reader() {
+        return executor.readExecute(() -> {
+            Blackhole.consumeCPU(readTokens);
+            return counter;
+        });
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public long writer() {
+        return executor.writeExecute(() -> ++counter);
+    }
+}
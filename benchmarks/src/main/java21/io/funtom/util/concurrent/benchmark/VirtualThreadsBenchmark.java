@@ -0,0 +1,108 @@
+package io.funtom.util.concurrent.benchmark;
+
+import io.funtom.util.concurrent.PerKeyReadWriteSynchronizedExecutor;
+import io.funtom.util.concurrent.PerKeySynchronizedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 100k callers contending on a few thousand keys, each caller is a task submitted to either
+ * a pool of platform threads or a new virtual thread.
+ * A non zero blockingMicros makes every task park while holding its key, like a call to a remote store would.
+ * Requires JDK 21, only compiled by the java21 profile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(VirtualThreadsBenchmark.CALLERS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadsBenchmark {
+
+    static final int CALLERS = 100_000;
+
+    public enum ThreadType {
+        PLATFORM, VIRTUAL
+    }
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadType threadType;
+
+    @Param({"256"})
+    public int platformThreads;
+
+    @Param({"2048"})
+    public int numberOfKeys;
+
+    @Param({"0", "50"})
+    public int blockingMicros;
+
+    private ExecutorService callers;
+    private PerKeySynchronizedExecutor<Integer> executor;
+    private PerKeyReadWriteSynchronizedExecutor<Integer> readWriteExecutor;
+    private Integer[] keys;
+    private long[] counters;
+
+    @Setup
+    public void setup() {
+        callers = threadType == ThreadType.VIRTUAL ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(platformThreads);
+        executor = new PerKeySynchronizedExecutor<>();
+        readWriteExecutor = new PerKeyReadWriteSynchronizedExecutor<>();
+        keys = KeyDistribution.createKeys(numberOfKeys);
+        counters = new long[numberOfKeys];
+    }
+
+    @TearDown
+    public void tearDown() {
+        callers.close();
+    }
+
+    @Benchmark
+    public void perKeyExecute() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        for (int c = 0; c < CALLERS; c++) {
+            callers.execute(() -> {
+                int i = KeyDistribution.UNIFORM.nextKeyIndex(numberOfKeys);
+                executor.execute(keys[i], () -> {
+                    counters[i]++;
+                    block();
+                });
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void perKeyReadWriteExecute() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        for (int c = 0; c < CALLERS; c++) {
+            callers.execute(() -> {
+                int i = KeyDistribution.UNIFORM.nextKeyIndex(numberOfKeys);
+                if (ThreadLocalRandom.current().nextInt(100) < 90) {
+                    readWriteExecutor.readExecute(keys[i], this::block);
+                } else {
+                    readWriteExecutor.writeExecute(keys[i], () -> {
+                        counters[i]++;
+                        block();
+                    });
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    private void block() {
+        if (blockingMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(blockingMicros));
+        }
+    }
+}
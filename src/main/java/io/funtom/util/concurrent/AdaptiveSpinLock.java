@@ -0,0 +1,138 @@
+package io.funtom.util.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ReentrantLock} which spins for a short while before parking, when it is held by another thread.
+ * The spin window follows a moving average of the recent hold times, which is sampled on some of the acquisitions:
+ * when the lock is usually held for less than the maximal spin window, a contended caller spins for about twice the average hold time,
+ * so it likely acquires the lock without a context switch. When the lock is held longer, callers park right away, and do not burn CPU.
+ * <p>
+ * Spinning calls Thread.onSpinWait() when running on Java 9 or later.
+ */
+class AdaptiveSpinLock extends ReentrantLock {
+
+    private static final long MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int SAMPLE_MASK = 15;
+    private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+    private volatile long averageHoldNanos;
+    // Guarded by the lock itself
+    private int acquisitions;
+    private long sampleStart;
+
+    @Override
+    public void lock() {
+        if (!tryLock()) {
+            spin(spinNanos());
+            if (!isHeldByCurrentThread()) {
+                super.lock();
+            }
+        }
+        startSample();
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+
+        if (!tryLock()) {
+            spin(spinNanos());
+            if (!isHeldByCurrentThread()) {
+                super.lockInterruptibly();
+            }
+        }
+        startSample();
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+
+        if (!tryLock()) {
+            long nanos = unit.toNanos(timeout);
+            long spinNanos = Math.min(spinNanos(), nanos);
+            long start = System.nanoTime();
+            spin(spinNanos);
+            if (!isHeldByCurrentThread() && !super.tryLock(nanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        startSample();
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (sampleStart != 0 && getHoldCount() == 1) {
+            long held = System.nanoTime() - sampleStart;
+            sampleStart = 0;
+            long average = averageHoldNanos;
+            averageHoldNanos = average + ((held - average) >> 3);
+        }
+        super.unlock();
+    }
+
+    /**
+     * Times the hold of one of every 16 outermost acquisitions.
+     */
+    private void startSample() {
+        if (getHoldCount() == 1 && (++acquisitions & SAMPLE_MASK) == 0) {
+            sampleStart = System.nanoTime();
+        }
+    }
+
+    long spinNanos() {
+        long average = averageHoldNanos;
+        return average > MAX_SPIN_NANOS ? 0 : 2 * average;
+    }
+
+    /**
+     * Spins until the lock is acquired or the spin window elapsed.
+     */
+    private void spin(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        do {
+            onSpinWait();
+            if (!isLocked() && super.tryLock()) {
+                return;
+            }
+        } while (System.nanoTime() - deadline < 0);
+    }
+
+    private static void onSpinWait() {
+        try {
+            ON_SPIN_WAIT.invokeExact();
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+    private static MethodHandle findOnSpinWait() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(void.class);
+        try {
+            return lookup.findStatic(Thread.class, "onSpinWait", type);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Before Java 9, spin without a hint
+            try {
+                return lookup.findStatic(AdaptiveSpinLock.class, "noSpinWait", type);
+            } catch (NoSuchMethodException | IllegalAccessException unexpected) {
+                throw new AssertionError(unexpected);
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static void noSpinWait() {
+    }
+}
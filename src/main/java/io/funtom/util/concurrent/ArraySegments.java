@@ -0,0 +1,163 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * The linked list of primitive array segments behind {@link LongConcurrentBuffer} and {@link IntConcurrentBuffer}.
+ * A producer claims the next slot of the tail segment with a single atomic increment, writes its element into the array of the segment,
+ * and publishes it by setting the bit of the slot in a bitmap of the segment, which costs 1 bit per element.
+ * <p>
+ * The removal side, which tracks the head of the list, is guarded by the monitor of the buffer.
+ *
+ * @param <A> The type of the arrays of the segments
+ */
+final class ArraySegments<A> {
+
+    private final int segmentSize;
+    private final IntFunction<A> arrayFactory;
+    private final AtomicReference<Segment<A>> tail;
+    private Segment<A> head;
+    private int headIndex;
+
+    /**
+     * @throws IllegalArgumentException - If segmentSize is not positive.
+     */
+    ArraySegments(int segmentSize, IntFunction<A> arrayFactory) {
+        if (segmentSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(segmentSize));
+
+        this.segmentSize = segmentSize;
+        this.arrayFactory = arrayFactory;
+        this.head = new Segment<>(arrayFactory.apply(segmentSize), segmentSize);
+        this.tail = new AtomicReference<>(head);
+    }
+
+    Segment<A> tail() {
+        return tail.get();
+    }
+
+    /**
+     * Called by a producer whose claim did not fit in the full segment.
+     */
+    void appendSegment(Segment<A> full) {
+        Segment<A> next = full.next.get();
+        if (next == null) {
+            Segment<A> created = new Segment<>(arrayFactory.apply(segmentSize), segmentSize);
+            next = full.next.compareAndSet(null, created) ? created : full.next.get();
+        }
+        tail.compareAndSet(full, next);
+    }
+
+    /**
+     * Removes up to length published elements, and copies them to the target array starting at offset, FIFO ordered.
+     *
+     * @return The number of elements removed.
+     */
+    int drainTo(A target, int offset, int length) {
+        int removed = 0;
+        while (removed < length && nextSegmentToRemove()) {
+            Segment<A> h = head;
+            int start = headIndex;
+            int end = h.publishedEnd(start, Math.min(segmentSize, start + length - removed));
+
+            System.arraycopy(h.values, start, target, offset + removed, end - start);
+            removed += end - start;
+            headIndex = end;
+            if (end < segmentSize) {
+                // Up to length, or claimed but not published yet
+                break;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return The head segment, whose values hold the element removed by the last call to removeNext().
+     */
+    Segment<A> head() {
+        return head;
+    }
+
+    /**
+     * Removes the first element, if it is published.
+     *
+     * @return The index of the element in the values of the head segment, or -1 if there is no published element.
+     */
+    int removeNext() {
+        if (!nextSegmentToRemove() || !head.isPublished(headIndex)) {
+            return -1;
+        }
+        return headIndex++;
+    }
+
+    /**
+     * @return true if there are no elements, and no elements are being added.
+     */
+    boolean isEmpty() {
+        nextSegmentToRemove();
+        Segment<A> h = head;
+        return h == tail.get() && h.claimed.get() == headIndex;
+    }
+
+    /**
+     * Moves the head to the next segment, if the head segment is fully removed and the next one is linked.
+     *
+     * @return false if the head segment is fully removed and the next one is not linked yet.
+     */
+    private boolean nextSegmentToRemove() {
+        if (headIndex < segmentSize) {
+            return true;
+        }
+
+        Segment<A> next = head.next.get();
+        if (next == null) {
+            return false;
+        }
+        head = next;
+        headIndex = 0;
+        return true;
+    }
+
+    static final class Segment<A> {
+
+        final A values;
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicReference<Segment<A>> next = new AtomicReference<>();
+        private final AtomicLongArray published;
+
+        private Segment(A values, int size) {
+            this.values = values;
+            this.published = new AtomicLongArray((size + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        /**
+         * Publishes the element written into the slot, with a single atomic addition: the bit of a slot is set once, so adding it sets it.
+         */
+        void publish(int index) {
+            published.getAndAdd(index / Long.SIZE, 1L << index);
+        }
+
+        boolean isPublished(int index) {
+            return (published.get(index / Long.SIZE) & 1L << index) != 0;
+        }
+
+        /**
+         * @return The index of the first slot which is not published, from start, or end if all the slots up to it are published.
+         */
+        int publishedEnd(int start, int end) {
+            int i = start;
+            while (i < end) {
+                long unpublished = ~published.get(i / Long.SIZE) >>> i;
+                if (unpublished != 0) {
+                    return Math.min(end, i + Long.numberOfTrailingZeros(unpublished));
+                }
+                // The rest of the word is published
+                i = (i | Long.SIZE - 1) + 1;
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * An Executor which executes tasks asynchronously on a user supplied {@link Executor}.
+ * The tasks will be executed serially on a <b>per-key basis</b>, in the order they were submitted.
+ * By saying <b>per-key</b>, we mean that tasks submitted with equals keys never overlap each other,
+ * and each of them happens-before the next one submitted with an equals key.
+ * Tasks submitted with keys that are not equals are executed concurrently, as far as the underlying executor allows.
+ * <p>
+ * Submitting never blocks the calling thread. A failed task fails its own future only, the next task of the same key is still executed.
+ * The state of a key is reclaimed once its last submitted task completes.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ */
+public final class AsyncPerKeyExecutor<KEY_TYPE> {
+
+    private final ConcurrentMap<KEY_TYPE, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    /**
+     * @param executor Runs the submitted tasks. If it rejects a task, or throws anything else, the future of that task is completed with that exception,
+     *                 and the next task of the same key is still executed.
+     */
+    public AsyncPerKeyExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> submit(KEY_TYPE key, Runnable task) {
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return A future completed with the result of the task. Completing or cancelling it does not affect the execution of the task.
+     */
+    public <R> CompletableFuture<R> submit(KEY_TYPE key, Supplier<R> task) {
+        CompletableFuture<R> next = new CompletableFuture<>();
+        CompletableFuture<R> result = new CompletableFuture<>();
+        next.whenComplete((r, e) -> {
+            tails.remove(key, next);
+            if (e == null) {
+                result.complete(r);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+
+        CompletableFuture<?> previous = append(key, next);
+        if (previous == null) {
+            dispatch(task, next);
+        } else {
+            previous.whenComplete((r, e) -> dispatch(task, next));
+        }
+        return result;
+    }
+
+    int size() {
+        return tails.size();
+    }
+
+    private CompletableFuture<?> append(KEY_TYPE key, CompletableFuture<?> next) {
+        while (true) {
+            CompletableFuture<?> previous = tails.putIfAbsent(key, next);
+            if (previous == null || tails.replace(key, previous, next)) {
+                return previous;
+            }
+        }
+    }
+
+    private <R> void dispatch(Supplier<R> task, CompletableFuture<R> future) {
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Throwable e) {
+            // Also thrown within the completion of the previous task, where it would be swallowed, leaving the key stuck
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A concurrent buffer which elements are added to one at a time or in collections, and removed from in batches.
+ * See {@link ConcurrentBuffer}, {@link RingConcurrentBuffer} and {@link StripedConcurrentBuffer} for the implementations and their guarantees.
+ * <p>
+ * Besides getting the removed elements in a new list, they can be handed directly to the caller with the drain methods, which do not allocate an intermediate list.
+ * Draining into the same caller owned collection every time (cleared after each use), makes a periodic drain loop allocation free.
+ * The drain methods have the same guarantees as {@link #getAndRemove(int)}.
+ * <p>
+ * A consumer may also wait for a batch to fill with {@link #awaitAndRemove}, instead of polling the buffer in a loop.
+ * See {@link BatchingConsumer} for a consumer which flushes batches on size or on linger time.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public interface BatchBuffer<T> {
+
+    /**
+     * Add single element to the buffer
+     *
+     * @param e An element to be added to the buffer.
+     */
+    void add(T e);
+
+    /**
+     * Add collection of elements to the buffer.
+     * The operation is not guaranteed to be atomic.
+     *
+     * @param elements A collection of elements to be added to the buffer.
+     */
+    void addAll(Collection<T> elements);
+
+    /**
+     * Get an remove all the current elements in the buffer.
+     *
+     * @return A list contains all the element in the buffer at the time the removal began, FIFO ordered.
+     */
+    List<T> getAndRemoveAll();
+
+    /**
+     * Same as {@link #getAndRemoveAll} but only up to maxElementsToRemove elements will be returned.
+     *
+     * @param maxElementsToRemove - The maximum number elements to be returned from the buffer in the batch. If maxElementsToRemove = 0 returns an empty list.
+     * @throws IllegalArgumentException - If maxElementsToRemove is negative.
+     */
+    List<T> getAndRemove(int maxElementsToRemove);
+
+    /**
+     * @return true if the buffer has no elements, and no elements are being added to it.
+     */
+    boolean isEmpty();
+
+    /**
+     * @return The number of elements dropped by the {@link OverflowPolicy#DROP_NEWEST} and {@link OverflowPolicy#DROP_OLDEST} policies, since the buffer was created.
+     */
+    long getDroppedCount();
+
+    /**
+     * Removes all the current elements in the buffer, and adds them to the target collection, FIFO ordered.
+     *
+     * @return The number of elements removed.
+     */
+    default int drainTo(Collection<? super T> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #drainTo(Collection)} but only up to maxElementsToRemove elements will be removed.
+     *
+     * @return The number of elements removed.
+     * @throws IllegalArgumentException - If maxElementsToRemove is negative.
+     */
+    int drainTo(Collection<? super T> target, int maxElementsToRemove);
+
+    /**
+     * Removes all the current elements in the buffer, and passes them one by one to the consumer, FIFO ordered.
+     * The consumer is called while removals from the buffer are blocked, so it should be fast.
+     * If the consumer throws, the elements it was already given are removed, and the rest remain in the buffer.
+     *
+     * @return The number of elements removed.
+     */
+    default int drainTo(Consumer<? super T> consumer) {
+        return drain(Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Same as {@link #drainTo(Consumer)} but only up to maxElementsToRemove elements will be removed.
+     *
+     * @return The number of elements removed.
+     * @throws IllegalArgumentException - If maxElementsToRemove is negative.
+     */
+    int drain(int maxElementsToRemove, Consumer<? super T> consumer);
+
+    /**
+     * Waits until at least minElements elements are removed from the buffer, or the timeout elapses, and returns the removed elements FIFO ordered.
+     * Returns as soon as minElements elements are removed. Elements are removed as they are added while waiting, and no more than maxElements are removed.
+     * If the calling thread is interrupted, the elements removed so far are returned and the interrupt status is kept.
+     * <p>
+     * Intended for a single consumer thread. If several threads wait at the same time, some of them may only wake up when their timeout elapses.
+     *
+     * @return A list of up to maxElements elements, which has less than minElements elements only if the timeout elapsed or the thread was interrupted.
+     * @throws IllegalArgumentException - If minElements is negative, or maxElements is less than minElements.
+     */
+    default List<T> awaitAndRemove(int minElements, int maxElements, long timeout, TimeUnit unit) {
+        List<T> result = new ArrayList<>();
+        awaitAndDrainTo(result, minElements, maxElements, timeout, unit);
+        return result;
+    }
+
+    /**
+     * Same as {@link #awaitAndRemove} but the removed elements are added to the target collection.
+     *
+     * @return The number of elements removed.
+     * @throws IllegalArgumentException - If minElements is negative, or maxElements is less than minElements.
+     */
+    int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit);
+}
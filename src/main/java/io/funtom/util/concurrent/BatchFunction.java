@@ -0,0 +1,20 @@
+package io.funtom.util.concurrent;
+
+import java.util.List;
+
+/**
+ * Executes a batch of coalesced tasks of a single key, see {@link PerKeyCoalescingExecutor}.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ * @param <T>        The type of the task inputs
+ * @param <R>        The type of the task results
+ */
+@FunctionalInterface
+public interface BatchFunction<KEY_TYPE, T, R> {
+
+    /**
+     * @param inputs The inputs of the tasks in the batch, in the order they were submitted.
+     * @return The results of the tasks, in the order of their inputs.
+     */
+    List<R> apply(KEY_TYPE key, List<T> inputs);
+}
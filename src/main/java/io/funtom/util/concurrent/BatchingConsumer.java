@@ -0,0 +1,132 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Consumes a {@link BatchBuffer} in batches, on a user supplied {@link Executor}, and passes every batch to a handler.
+ * A batch is flushed once it has maxBatchSize elements, or once the linger time passed since its first element was removed from the buffer,
+ * so an element waits in a batch no longer than the linger time. The consumer parks while the buffer is empty, without any timeout, so an idle consumer never spins nor wakes up,
+ * even with a linger time of 0, which flushes every batch as soon as its first elements are removed.
+ * <p>
+ * The handler is called by a single thread, one batch at a time, with the batches FIFO ordered.
+ * A handler that throws does not stop the consumer, the exception is passed to the uncaught exception handler of the consumer thread and the batch is not retried.
+ * The consumer should be the only one removing from the buffer.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public final class BatchingConsumer<T> implements AutoCloseable {
+
+    private final BatchBuffer<T> buffer;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Consumer<? super List<T>> handler;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private boolean closed;
+    private Thread waitingConsumer;
+
+    /**
+     * Starts consuming the buffer, the consumer occupies one thread of the executor until it is closed.
+     *
+     * @param maxBatchSize The number of elements which triggers a flush.
+     * @param linger       The maximum time a batch is kept before it is flushed.
+     * @param handler      Called with every batch. The batch list is owned by the handler.
+     * @throws IllegalArgumentException                        - If maxBatchSize is not positive or linger is negative.
+     * @throws java.util.concurrent.RejectedExecutionException - If the executor rejects the consumer.
+     */
+    public BatchingConsumer(BatchBuffer<T> buffer, int maxBatchSize, long linger, TimeUnit unit, Consumer<? super List<T>> handler, Executor executor) {
+
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxBatchSize));
+
+        if (linger < 0)
+            throw new IllegalArgumentException(Long.toString(linger));
+
+        this.buffer = Objects.requireNonNull(buffer);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = unit.toNanos(linger);
+        this.handler = Objects.requireNonNull(handler);
+        executor.execute(this::consume);
+    }
+
+    /**
+     * Stops the consumer, after it flushes the elements left in the buffer.
+     * A consumer waiting for elements is woken up by interrupting it, a consumer handling a batch is never interrupted.
+     * Blocks until the last batch is handled.
+     *
+     * @throws InterruptedException - If interrupted while waiting for the consumer to stop.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            if (waitingConsumer != null) {
+                waitingConsumer.interrupt();
+            }
+        }
+        stopped.await();
+    }
+
+    private void consume() {
+        try {
+            List<T> batch = new ArrayList<>();
+            while (startWaiting()) {
+                try {
+                    // Until the first elements arrive, or close() interrupts the wait
+                    buffer.awaitAndDrainTo(batch, 1, maxBatchSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                    if (!batch.isEmpty()) {
+                        // The linger time of the batch starts when its first elements are removed
+                        int missing = maxBatchSize - batch.size();
+                        buffer.awaitAndDrainTo(batch, missing, missing, lingerNanos, TimeUnit.NANOSECONDS);
+                    }
+                } finally {
+                    stopWaiting();
+                }
+
+                if (!batch.isEmpty()) {
+                    handle(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+
+            for (List<T> rest = buffer.getAndRemove(maxBatchSize); !rest.isEmpty(); rest = buffer.getAndRemove(maxBatchSize)) {
+                handle(rest);
+            }
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * @return false if the consumer should stop.
+     */
+    private synchronized boolean startWaiting() {
+        if (closed || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        waitingConsumer = Thread.currentThread();
+        return true;
+    }
+
+    private synchronized void stopWaiting() {
+        waitingConsumer = null;
+        if (closed) {
+            // Clears the interrupt of close, the thread belongs to the executor
+            Thread.interrupted();
+        }
+    }
+
+    private void handle(List<T> batch) {
+        try {
+            handler.accept(batch);
+        } catch (Throwable e) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A non-reentrant lock which is a single object: an int state and the head and tail of its queue of waiting threads, which is allocated only under contention.
+ * A {@link ReentrantLock} is two objects, the lock and its synchronizer, so a compact lock saves an object and its header for every key whose lock is held.
+ * <p>
+ * The lock is non-fair, a caller may acquire it ahead of the queued threads. Locking it again by the thread holding it deadlocks.
+ */
+class CompactLock extends AbstractQueuedSynchronizer implements Lock {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void lock() {
+        acquire(1);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquireInterruptibly(1);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return tryAcquireNanos(1, unit.toNanos(time));
+    }
+
+    @Override
+    public void unlock() {
+        release(1);
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new ConditionObject();
+    }
+
+    @Override
+    protected boolean tryAcquire(int ignored) {
+        if (getState() == 0 && compareAndSetState(0, 1)) {
+            setExclusiveOwnerThread(Thread.currentThread());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean tryRelease(int ignored) {
+        if (getExclusiveOwnerThread() != Thread.currentThread())
+            throw new IllegalMonitorStateException();
+
+        setExclusiveOwnerThread(null);
+        setState(0);
+        return true;
+    }
+
+    @Override
+    protected boolean isHeldExclusively() {
+        return getExclusiveOwnerThread() == Thread.currentThread();
+    }
+}
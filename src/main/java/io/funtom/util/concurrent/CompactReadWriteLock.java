@@ -0,0 +1,159 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A non-reentrant read-write lock whose state is a single int: the number of readers holding it, or -1 when a writer holds it,
+ * next to the head and tail of its queue of waiting threads, which is allocated only under contention.
+ * Unlike a {@link ReentrantReadWriteLock}, it keeps no per-thread hold counts, so it takes a fraction of its memory.
+ * Its read and write lock views are created once with the lock, like the ones of a {@link ReentrantReadWriteLock}, so locking it never allocates.
+ * <p>
+ * Writers may acquire the lock ahead of the queued threads, while readers queue behind any waiting thread, so a stream of reads does not starve the writers.
+ * Locking it again by a thread holding it might deadlock.
+ */
+final class CompactReadWriteLock extends AbstractQueuedSynchronizer implements ReadWriteLock {
+
+    private static final long serialVersionUID = 1L;
+    private static final int WRITING = -1;
+
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    @Override
+    protected boolean tryAcquire(int ignored) {
+        if (getState() == 0 && compareAndSetState(0, WRITING)) {
+            setExclusiveOwnerThread(Thread.currentThread());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean tryRelease(int ignored) {
+        if (getExclusiveOwnerThread() != Thread.currentThread())
+            throw new IllegalMonitorStateException();
+
+        setExclusiveOwnerThread(null);
+        setState(0);
+        return true;
+    }
+
+    @Override
+    protected int tryAcquireShared(int ignored) {
+        if (hasQueuedPredecessors()) {
+            return -1;
+        }
+        return tryAcquireSharedNow();
+    }
+
+    private int tryAcquireSharedNow() {
+        while (true) {
+            int c = getState();
+            if (c == WRITING) {
+                return -1;
+            }
+            if (compareAndSetState(c, c + 1)) {
+                return 1;
+            }
+        }
+    }
+
+    @Override
+    protected boolean tryReleaseShared(int ignored) {
+        while (true) {
+            int c = getState();
+            if (c <= 0)
+                throw new IllegalMonitorStateException();
+
+            if (compareAndSetState(c, c - 1)) {
+                return c == 1;
+            }
+        }
+    }
+
+    @Override
+    protected boolean isHeldExclusively() {
+        return getExclusiveOwnerThread() == Thread.currentThread();
+    }
+
+    private final class ReadLock implements Lock {
+
+        @Override
+        public void lock() {
+            acquireShared(1);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquireSharedInterruptibly(1);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return tryAcquireSharedNow() >= 0;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return tryAcquireSharedNanos(1, unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            releaseShared(1);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class WriteLock implements Lock {
+
+        @Override
+        public void lock() {
+            acquire(1);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquireInterruptibly(1);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return tryAcquire(1);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return tryAcquireNanos(1, unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            release(1);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return new ConditionObject();
+        }
+    }
+}
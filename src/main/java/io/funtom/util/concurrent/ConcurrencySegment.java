@@ -1,40 +1,87 @@
 package io.funtom.util.concurrent;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Supplier;
 
+/**
+ * Holds a value per key for as long as the key has users.
+ * Users are reference counted with CAS on the entry itself, so acquiring and releasing a key never takes a segment-wide monitor.
+ * An entry whose count dropped to zero is dead: it is never handed out again, and is removed from the store by its last user
+ * (or by any thread that runs into it first), so a new entry is created for the next user of the key.
+ */
 final class ConcurrencySegment<K, V> {
 
-    private final Map<K, Entry> store = new HashMap<K, Entry>();
+    private final ConcurrentMap<K, Entry<V>> store = new ConcurrentHashMap<>();
     private final Supplier<V> valuesSupplier;
 
     ConcurrencySegment(Supplier<V> valuesSupplier) {
         this.valuesSupplier = valuesSupplier;
     }
 
-    synchronized V getValue(K key) {
-        Entry current = store.get(key);
-        if (current == null) {
-            current = new Entry();
-            store.put(key, current);
-        } else {
-            current.users++;
+    V getValue(K key) {
+        Entry<V> candidate = null;
+        while (true) {
+            Entry<V> current = store.get(key);
+            if (current == null) {
+                if (candidate == null) {
+                    candidate = new Entry<>(valuesSupplier.get());
+                }
+                current = store.putIfAbsent(key, candidate);
+                if (current == null) {
+                    return candidate.value;
+                }
+            }
+
+            if (current.tryAcquire()) {
+                return current.value;
+            }
+
+            // The last user of this entry is on its way out, help removing it and retry
+            store.remove(key, current);
         }
-        return current.value;
     }
 
-    synchronized void releaseKey(K key) {
-        Entry current = store.get(key);
-        if (current.users == 1) {
-            store.remove(key);
-        } else {
-            current.users--;
+    void releaseKey(K key) {
+        Entry<V> current = store.get(key);
+        if (current.release()) {
+            store.remove(key, current);
         }
     }
 
-    private class Entry {
-        private int users = 1;
-        private V value = valuesSupplier.get();
+    int size() {
+        return store.size();
+    }
+
+    private static final class Entry<V> {
+
+        private static final AtomicIntegerFieldUpdater<Entry> USERS = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "users");
+
+        private final V value;
+        private volatile int users = 1;
+
+        Entry(V value) {
+            this.value = value;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = users;
+                if (current == 0) {
+                    return false;
+                }
+                if (USERS.compareAndSet(this, current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return true if the caller was the last user, and the entry is now dead.
+         */
+        boolean release() {
+            return USERS.decrementAndGet(this) == 0;
+        }
     }
 }
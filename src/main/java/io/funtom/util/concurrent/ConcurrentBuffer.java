@@ -2,6 +2,10 @@ package io.funtom.util.concurrent;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * A concurrent buffer which supports additions of single elements or collections of elements, and also supports removals of all the elements or up to 'n' elements.
@@ -10,20 +14,72 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * The elements being remove from the buffer returned FIFO ordered.
  * A thread that removes elements from the buffer is guaranteed to see the most updated values in the Buffer at the time the removal began.
  * Subsequent additions during the removals may be returned but are not guaranteed to be returned.
+ * <p>
+ * A buffer may be bounded by a capacity. Adding to a full bounded buffer is handled according to the buffer {@link OverflowPolicy},
+ * in which case additions might block, fail or drop elements.
  *
  * @param <T> The type of the elements in the Buffer
  */
-public final class ConcurrentBuffer<T> {
+public final class ConcurrentBuffer<T> implements BatchBuffer<T> {
 
     private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+    private final Semaphore freeSlots;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final ConsumerSignal signal = new ConsumerSignal(() -> !isEmpty());
+
+    /**
+     * Creates an unbounded buffer.
+     */
+    public ConcurrentBuffer() {
+        this.freeSlots = null;
+        this.overflowPolicy = null;
+    }
+
+    /**
+     * Creates a bounded buffer.
+     *
+     * @param capacity       The maximum number of elements in the buffer.
+     * @param overflowPolicy What to do when an element is added to a full buffer.
+     * @throws IllegalArgumentException - If capacity is not positive.
+     */
+    public ConcurrentBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException(Integer.toString(capacity));
+
+        this.freeSlots = new Semaphore(capacity);
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+    }
 
     /**
      * Add single element to the buffer
      *
      * @param e An element to be added to the buffer.
+     * @throws IllegalStateException - If the buffer is full, and its overflow policy is {@link OverflowPolicy#FAIL}.
      */
+    @Override
     public void add(T e) {
-        buffer.add(e);
+        if (freeSlots == null || freeSlots.tryAcquire()) {
+            buffer.add(e);
+            signal.signal();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                freeSlots.acquireUninterruptibly();
+                buffer.add(e);
+                break;
+            case FAIL:
+                throw new IllegalStateException("Buffer is full");
+            case DROP_NEWEST:
+                dropped.increment();
+                return;
+            case DROP_OLDEST:
+                addInsteadOfOldest(e);
+                break;
+        }
+        signal.signal();
     }
 
     /**
@@ -31,9 +87,19 @@ public final class ConcurrentBuffer<T> {
      * The operation is not guaranteed to be atomic.
      *
      * @param elements A collection of elements to be added to the buffer.
+     * @throws IllegalStateException - If the buffer is full, and its overflow policy is {@link OverflowPolicy#FAIL}. Some of the elements might have been added.
      */
+    @Override
     public void addAll(Collection<T> elements) {
-        buffer.addAll(elements);
+        if (freeSlots == null) {
+            buffer.addAll(elements);
+            signal.signal();
+            return;
+        }
+
+        for (T e : elements) {
+            add(e);
+        }
     }
 
     /**
@@ -43,12 +109,10 @@ public final class ConcurrentBuffer<T> {
      * @return A list contains all the element in the buffer at the time the removal began.
      * Elements that where added to the buffer during the the removal may be returned but it is not guaranteed
      */
-    public synchronized List<T> getAndRemoveAll() {
+    @Override
+    public List<T> getAndRemoveAll() {
         List<T> result = new ArrayList<>();
-        for (Iterator<T> it = buffer.iterator(); it.hasNext(); ) {
-            result.add(it.next());
-            it.remove();
-        }
+        drainTo(result, Integer.MAX_VALUE);
         return result;
     }
 
@@ -61,19 +125,85 @@ public final class ConcurrentBuffer<T> {
      * Elements that where added to the buffer during the the removal may be returned but that is not guaranteed.
      * @throws IllegalArgumentException - If maxElementsToRemove is negative.
      */
-    public synchronized List<T> getAndRemove(int maxElementsToRemove) {
+    @Override
+    public List<T> getAndRemove(int maxElementsToRemove) {
+        List<T> result = new ArrayList<>();
+        drainTo(result, maxElementsToRemove);
+        return result;
+    }
+
+    @Override
+    public synchronized int drainTo(Collection<? super T> target, int maxElementsToRemove) {
 
         if (maxElementsToRemove < 0)
             throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
 
-        int remaining = maxElementsToRemove;
+        int removed = 0;
+        try {
+            for (T e; removed < maxElementsToRemove && (e = buffer.poll()) != null; ) {
+                removed++;
+                target.add(e);
+            }
+        } finally {
+            releaseSlots(removed);
+        }
+        return removed;
+    }
 
-        List<T> result = new ArrayList<>();
-        for (Iterator<T> it = buffer.iterator(); it.hasNext() && remaining > 0; ) {
-            result.add(it.next());
-            it.remove();
-            remaining--;
+    @Override
+    public synchronized int drain(int maxElementsToRemove, Consumer<? super T> consumer) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        int removed = 0;
+        try {
+            for (T e; removed < maxElementsToRemove && (e = buffer.poll()) != null; ) {
+                removed++;
+                consumer.accept(e);
+            }
+        } finally {
+            releaseSlots(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+        return signal.awaitAndDrainTo(this, target, minElements, maxElements, timeout, unit);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void addInsteadOfOldest(T e) {
+        while (true) {
+            if (buffer.poll() != null) {
+                // The slot of the dropped element is taken by the new one
+                dropped.increment();
+                buffer.add(e);
+                return;
+            }
+
+            // The buffer was emptied meanwhile, or its elements are yet to be added by the threads that took the slots
+            if (freeSlots.tryAcquire()) {
+                buffer.add(e);
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    private void releaseSlots(int removed) {
+        if (freeSlots != null && removed > 0) {
+            freeSlots.release(removed);
         }
-        return result;
     }
 }
@@ -0,0 +1,71 @@
+package io.funtom.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parks a consumer waiting for elements to be added to a buffer, until a producer signals it.
+ * Producers pay a single volatile read per addition when no consumer is waiting, and only one of them unparks a waiting consumer.
+ */
+final class ConsumerSignal {
+
+    private final AtomicReference<Thread> waiter = new AtomicReference<>();
+    private final BooleanSupplier hasPendingElements;
+
+    /**
+     * @param hasPendingElements Whether the buffer has elements which are added or being added. Must read a value producers write with a volatile write or a CAS,
+     *                           before they signal. The consumer only parks if it is false.
+     */
+    ConsumerSignal(BooleanSupplier hasPendingElements) {
+        this.hasPendingElements = hasPendingElements;
+    }
+
+    /**
+     * Called by producers after an element is added.
+     */
+    void signal() {
+        Thread w = waiter.get();
+        if (w != null && waiter.compareAndSet(w, null)) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * Drains the buffer into the target until at least minElements were removed, or the timeout elapses, or the calling thread is interrupted.
+     * The monitor of the buffer is not held while waiting.
+     */
+    <T> int awaitAndDrainTo(BatchBuffer<T> buffer, Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+
+        if (minElements < 0 || maxElements < minElements)
+            throw new IllegalArgumentException(minElements + ", " + maxElements);
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int removed = buffer.drainTo(target, maxElements);
+
+        Thread current = Thread.currentThread();
+        while (removed < minElements) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || current.isInterrupted()) {
+                break;
+            }
+
+            waiter.set(current);
+            // Drained again after registering, so an addition which did not see the waiter is not missed
+            int more = buffer.drainTo(target, maxElements - removed);
+            if (more == 0) {
+                if (hasPendingElements.getAsBoolean()) {
+                    // Claimed by a producer but not published yet
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            waiter.compareAndSet(current, null);
+            removed += more;
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,366 @@
+package io.funtom.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Records the contention of a {@link PerKeySynchronizedExecutor} it is given to: the number of acquisitions of the key locks and how many of them had to wait,
+ * histograms of the time spent waiting for the locks and holding them, a sampled report of the hottest keys, and the number of live keys in every segment.
+ * An executor created without metrics does not record anything, and pays nothing more than a null check per execution.
+ * <p>
+ * Only the blocking execute(key, ...) methods are recorded, the try, interruptible and multi-key variants are not.
+ * A metrics instance is used by a single executor. Read it with {@link #snapshot()}, or register it with an MBeanServer, as it is an MXBean.
+ * <p>
+ * The hot keys are counted with the Space-Saving algorithm: a bounded number of sampled keys is tracked, and a new key replaces the coldest one,
+ * inheriting its count. So a key can be overestimated, by at most the inherited count which is reported as its error,
+ * but any key holding more than 1/(8 * topK) of the sampled acquisitions is always tracked.
+ *
+ * @param <KEY_TYPE> The type of the keys of the executor
+ */
+public final class ContentionMetrics<KEY_TYPE> implements ContentionMetricsMXBean {
+
+    private static final int DEFAULT_HOT_KEY_SAMPLE_RATE = 64;
+    private static final int DEFAULT_TOP_K = 10;
+    private static final int TRACKED_KEYS_PER_REPORTED_KEY = 8;
+    private static final long MXBEAN_SNAPSHOT_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    private final ConcurrentMap<KEY_TYPE, SampledKey> sampledKeys = new ConcurrentHashMap<>();
+    private final int hotKeySampleRate;
+    private final int topK;
+    private final int maxTrackedKeys;
+    private volatile ConcurrencySegment<?, ?>[] segments;
+    private volatile Snapshot<KEY_TYPE> mxBeanSnapshot;
+
+    /**
+     * Creates metrics which sample 1 of 64 acquisitions for the hot keys report, and report the 10 hottest keys.
+     */
+    public ContentionMetrics() {
+        this(DEFAULT_HOT_KEY_SAMPLE_RATE, DEFAULT_TOP_K);
+    }
+
+    /**
+     * @param hotKeySampleRate 1 of hotKeySampleRate acquisitions, selected at random, is counted for the hot keys report.
+     * @param topK             The number of keys in the hot keys report.
+     * @throws IllegalArgumentException - If hotKeySampleRate or topK is not positive.
+     */
+    public ContentionMetrics(int hotKeySampleRate, int topK) {
+        if (hotKeySampleRate <= 0)
+            throw new IllegalArgumentException(Integer.toString(hotKeySampleRate));
+        if (topK <= 0)
+            throw new IllegalArgumentException(Integer.toString(topK));
+
+        this.hotKeySampleRate = hotKeySampleRate;
+        this.topK = topK;
+        this.maxTrackedKeys = topK * TRACKED_KEYS_PER_REPORTED_KEY;
+    }
+
+    /**
+     * @return The current values of the metrics. The values are read one after the other, while the executor keeps running, so they might not be exactly consistent with each other.
+     */
+    public Snapshot<KEY_TYPE> snapshot() {
+        ConcurrencySegment<?, ?>[] s = segments;
+        int[] segmentSizes = new int[s == null ? 0 : s.length];
+        for (int i = 0; i < segmentSizes.length; i++) {
+            segmentSizes[i] = s[i].size();
+        }
+        List<Map.Entry<KEY_TYPE, Long>> hotKeys = hotKeys();
+        Map<KEY_TYPE, Long> hotKeyErrors = new LinkedHashMap<>();
+        for (Map.Entry<KEY_TYPE, Long> e : hotKeys) {
+            SampledKey sampled = sampledKeys.get(e.getKey());
+            hotKeyErrors.put(e.getKey(), sampled == null ? 0 : sampled.error * hotKeySampleRate);
+        }
+        return new Snapshot<>(System.nanoTime(), acquisitions.sum(), contendedAcquisitions.sum(), waitTime.counts(), holdTime.counts(),
+                hotKeys, Collections.unmodifiableMap(hotKeyErrors), segmentSizes);
+    }
+
+    /**
+     * The MXBean attributes are read one at a time, so they share a snapshot for a second,
+     * which keeps the attributes read together consistent, and reading all of them as cheap as a single snapshot.
+     */
+    private Snapshot<KEY_TYPE> mxBeanSnapshot() {
+        Snapshot<KEY_TYPE> snapshot = mxBeanSnapshot;
+        if (snapshot == null || System.nanoTime() - snapshot.time >= MXBEAN_SNAPSHOT_MAX_AGE_NANOS) {
+            snapshot = snapshot();
+            mxBeanSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public long getAcquisitions() {
+        return mxBeanSnapshot().getAcquisitions();
+    }
+
+    @Override
+    public long getContendedAcquisitions() {
+        return mxBeanSnapshot().getContendedAcquisitions();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogram() {
+        return mxBeanSnapshot().getWaitTimeHistogram();
+    }
+
+    @Override
+    public long[] getHoldTimeHistogram() {
+        return mxBeanSnapshot().getHoldTimeHistogram();
+    }
+
+    @Override
+    public long getWaitTime99thPercentile() {
+        return mxBeanSnapshot().getWaitTimePercentile(99);
+    }
+
+    @Override
+    public long getHoldTime99thPercentile() {
+        return mxBeanSnapshot().getHoldTimePercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getHotKeys() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<KEY_TYPE, Long> e : mxBeanSnapshot().getHotKeys()) {
+            result.merge(String.valueOf(e.getKey()), e.getValue(), Long::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getHotKeyErrors() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<KEY_TYPE, Long> e : mxBeanSnapshot().getHotKeyErrors().entrySet()) {
+            result.merge(String.valueOf(e.getKey()), e.getValue(), Long::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] getSegmentSizes() {
+        return mxBeanSnapshot().getSegmentSizes();
+    }
+
+    @Override
+    public int getLiveKeys() {
+        return mxBeanSnapshot().getLiveKeys();
+    }
+
+    void attach(ConcurrencySegment<?, ?>[] executorSegments) {
+        synchronized (this) {
+            if (segments != null)
+                throw new IllegalStateException("The metrics are already used by another executor");
+
+            segments = executorSegments;
+        }
+    }
+
+    <R> R execute(KEY_TYPE key, Lock lock, Supplier<R> task) {
+        long start = System.nanoTime();
+        boolean contended = !lock.tryLock();
+        if (contended) {
+            lock.lock();
+        }
+        long acquired = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            lock.unlock();
+            long released = System.nanoTime();
+            acquisitions.increment();
+            if (contended) {
+                contendedAcquisitions.increment();
+            }
+            waitTime.record(acquired - start);
+            holdTime.record(released - acquired);
+            if (hotKeySampleRate == 1 || ThreadLocalRandom.current().nextInt(hotKeySampleRate) == 0) {
+                sample(key);
+            }
+        }
+    }
+
+    private void sample(KEY_TYPE key) {
+        SampledKey sampled = sampledKeys.get(key);
+        if (sampled == null) {
+            sampled = track(key);
+        }
+        sampled.count.increment();
+    }
+
+    private SampledKey track(KEY_TYPE key) {
+        if (sampledKeys.size() < maxTrackedKeys) {
+            return sampledKeys.computeIfAbsent(key, k -> new SampledKey(0));
+        }
+
+        // Serializes the replacements, so concurrent new keys do not replace the same coldest key, or grow the map beyond its bound
+        synchronized (sampledKeys) {
+            SampledKey sampled = sampledKeys.get(key);
+            if (sampled != null) {
+                return sampled;
+            }
+            Map.Entry<KEY_TYPE, SampledKey> coldest = null;
+            long coldestCount = Long.MAX_VALUE;
+            for (Map.Entry<KEY_TYPE, SampledKey> e : sampledKeys.entrySet()) {
+                long count = e.getValue().count.sum();
+                if (count < coldestCount) {
+                    coldest = e;
+                    coldestCount = count;
+                }
+            }
+            if (coldest == null) {
+                return sampledKeys.computeIfAbsent(key, k -> new SampledKey(0));
+            }
+            // Samples of the coldest key which land between the scan and the removal are lost, as in any concurrent Space-Saving
+            sampledKeys.remove(coldest.getKey());
+            sampled = new SampledKey(coldestCount);
+            sampled.count.add(coldestCount);
+            SampledKey raced = sampledKeys.putIfAbsent(key, sampled);
+            return raced == null ? sampled : raced;
+        }
+    }
+
+    private List<Map.Entry<KEY_TYPE, Long>> hotKeys() {
+        List<Map.Entry<KEY_TYPE, Long>> result = new ArrayList<>();
+        for (Map.Entry<KEY_TYPE, SampledKey> e : sampledKeys.entrySet()) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().count.sum() * hotKeySampleRate));
+        }
+        result.sort(Map.Entry.<KEY_TYPE, Long>comparingByValue().reversed());
+        return Collections.unmodifiableList(result.size() > topK ? new ArrayList<>(result.subList(0, topK)) : result);
+    }
+
+    /**
+     * A key tracked for the hot keys report.
+     */
+    private static final class SampledKey {
+
+        final LongAdder count = new LongAdder();
+        // The count inherited from the key it replaced, by which count may overestimate the samples of this key
+        final long error;
+
+        SampledKey(long error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * The values of {@link ContentionMetrics} at a point in time.
+     *
+     * @param <KEY_TYPE> The type of the keys of the executor
+     */
+    public static final class Snapshot<KEY_TYPE> {
+
+        final long time;
+        private final long acquisitions;
+        private final long contendedAcquisitions;
+        private final long[] waitTimeHistogram;
+        private final long[] holdTimeHistogram;
+        private final List<Map.Entry<KEY_TYPE, Long>> hotKeys;
+        private final Map<KEY_TYPE, Long> hotKeyErrors;
+        private final int[] segmentSizes;
+
+        Snapshot(long time, long acquisitions, long contendedAcquisitions, long[] waitTimeHistogram, long[] holdTimeHistogram,
+                 List<Map.Entry<KEY_TYPE, Long>> hotKeys, Map<KEY_TYPE, Long> hotKeyErrors, int[] segmentSizes) {
+            this.time = time;
+            this.acquisitions = acquisitions;
+            this.contendedAcquisitions = contendedAcquisitions;
+            this.waitTimeHistogram = waitTimeHistogram;
+            this.holdTimeHistogram = holdTimeHistogram;
+            this.hotKeys = hotKeys;
+            this.hotKeyErrors = hotKeyErrors;
+            this.segmentSizes = segmentSizes;
+        }
+
+        /**
+         * @return The number of times a key lock was acquired.
+         */
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        /**
+         * @return The number of times a key lock was held by another thread, so the caller had to wait for it.
+         */
+        public long getContendedAcquisitions() {
+            return contendedAcquisitions;
+        }
+
+        /**
+         * @return 1888 counters of the time spent waiting for the key locks. Bucket i &lt; 32 counts waits of i nanoseconds,
+         * and every power of two range of nanoseconds above, [2^k, 2^(k+1)), is split into 32 buckets of equal width, so bucket 32 * (k - 4) + j
+         * counts waits of [2^k + j * 2^(k-5), 2^k + (j+1) * 2^(k-5)) nanoseconds.
+         */
+        public long[] getWaitTimeHistogram() {
+            return waitTimeHistogram.clone();
+        }
+
+        /**
+         * @return 1888 counters of the time the key locks were held, with the buckets of {@link #getWaitTimeHistogram()}.
+         */
+        public long[] getHoldTimeHistogram() {
+            return holdTimeHistogram.clone();
+        }
+
+        /**
+         * @param percentile Between 0 and 100.
+         * @return The upper bound, in nanoseconds, of the bucket of the wait time histogram holding the percentile, or 0 if nothing was recorded.
+         */
+        public long getWaitTimePercentile(double percentile) {
+            return LatencyHistogram.percentile(waitTimeHistogram, percentile);
+        }
+
+        /**
+         * @param percentile Between 0 and 100.
+         * @return The upper bound, in nanoseconds, of the bucket of the hold time histogram holding the percentile, or 0 if nothing was recorded.
+         */
+        public long getHoldTimePercentile(double percentile) {
+            return LatencyHistogram.percentile(holdTimeHistogram, percentile);
+        }
+
+        /**
+         * @return Up to topK keys, hottest first, with their estimated number of acquisitions: the sampled acquisitions multiplied by the sample rate.
+         * An estimate never undercounts the sampled acquisitions, and overcounts them by at most the error of the key.
+         */
+        public List<Map.Entry<KEY_TYPE, Long>> getHotKeys() {
+            return hotKeys;
+        }
+
+        /**
+         * @return The keys of {@link #getHotKeys()}, with the maximum overestimation of their number of acquisitions.
+         * A key was acquired at least its estimate minus its error times, up to the sampling.
+         */
+        public Map<KEY_TYPE, Long> getHotKeyErrors() {
+            return hotKeyErrors;
+        }
+
+        /**
+         * @return The number of keys in use, in every segment of the executor.
+         */
+        public int[] getSegmentSizes() {
+            return segmentSizes.clone();
+        }
+
+        /**
+         * @return The number of keys in use, in all the segments of the executor.
+         */
+        public int getLiveKeys() {
+            int sum = 0;
+            for (int size : segmentSizes) {
+                sum += size;
+            }
+            return sum;
+        }
+    }
+}
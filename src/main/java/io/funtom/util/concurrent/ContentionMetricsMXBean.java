@@ -0,0 +1,36 @@
+package io.funtom.util.concurrent;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link ContentionMetrics}. The attributes are read from a snapshot shared for a second, so the attributes read together are consistent with each other.
+ * Times are in nanoseconds, and the histograms have the buckets described in {@link ContentionMetrics.Snapshot#getWaitTimeHistogram()}.
+ */
+public interface ContentionMetricsMXBean {
+
+    long getAcquisitions();
+
+    long getContendedAcquisitions();
+
+    long[] getWaitTimeHistogram();
+
+    long[] getHoldTimeHistogram();
+
+    long getWaitTime99thPercentile();
+
+    long getHoldTime99thPercentile();
+
+    /**
+     * @return The estimated number of acquisitions of the hottest keys, by the string value of the keys, hottest first.
+     */
+    Map<String, Long> getHotKeys();
+
+    /**
+     * @return The maximum overestimation of every hot key, by the string value of the keys.
+     */
+    Map<String, Long> getHotKeyErrors();
+
+    int[] getSegmentSizes();
+
+    int getLiveKeys();
+}
@@ -0,0 +1,487 @@
+package io.funtom.util.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An unbounded concurrent buffer which writes every added element to an append-only log before it is buffered, with the same guarantees as {@link ConcurrentBuffer}.
+ * Elements which were removed but not acknowledged by the consumer, and elements which were not removed, are replayed into the buffer when it is created after a crash or a restart.
+ * <p>
+ * The log is a directory of segment files, each holding records of a length, a CRC32 checksum and the serialized element.
+ * The checksum covers the length as well as the element, so the zero-filled tail of a file which grew but was not synced before a crash is not replayed as empty elements.
+ * The directory itself is synced when a segment file is created and when the acknowledgement is renamed, so the files survive a crash along with their contents.
+ * Adding an element writes it to the log, and syncs the log to the disk once syncBatchSize elements were added since the last sync.
+ * Concurrent syncs are grouped into a single fsync, so with syncBatchSize = 1 an add returns only when its element is on the disk, and concurrent producers share their fsyncs.
+ * With a larger syncBatchSize or a sync interval, elements added since the last sync might be lost if the machine crashes.
+ * A failure of the periodic sync does not stop it, it is thrown to the next caller of add(...) or sync().
+ * <p>
+ * The consumer calls {@link #acknowledge()} once it is done with the elements it removed. The log is truncated up to the acknowledged elements, by deleting its old segment files.
+ * A removed element which is not acknowledged is not returned again by the same buffer, it is only replayed by the next buffer created on the directory.
+ * Only one buffer may use a directory at a time.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public final class DurableConcurrentBuffer<T> implements BatchBuffer<T>, AutoCloseable {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String ACKNOWLEDGED_FILE = "acknowledged";
+    // A directory can't be opened, hence synced, on Windows
+    private static final boolean SYNC_DIRECTORY = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path directory;
+    private final Serializer<T> serializer;
+    private final int segmentSize;
+    private final int syncBatchSize;
+    private final ConcurrentBuffer<T> memory = new ConcurrentBuffer<>();
+    private final ConsumerSignal signal = new ConsumerSignal(() -> !isEmpty());
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ScheduledFuture<?> periodicSync;
+
+    private FileChannel channel;
+    private long channelSize;
+    private boolean closed;
+    // A torn record which could be neither truncated nor left behind, no record may be appended after it
+    private IOException broken;
+    // The last failure of the periodic sync, thrown to the next caller of add or sync
+    private volatile UncheckedIOException periodicSyncFailure;
+    private volatile long appended;
+    private volatile long synced;
+
+    private long nextToRemove;
+    private long acknowledged;
+
+    /**
+     * Creates a buffer which syncs the log on every add.
+     *
+     * @param directory The directory of the log, created if missing. Its unacknowledged elements are replayed into the buffer.
+     * @throws UncheckedIOException - If the log could not be read or created.
+     */
+    public DurableConcurrentBuffer(Path directory, Serializer<T> serializer) {
+        this(directory, serializer, 1);
+    }
+
+    /**
+     * @param syncBatchSize The number of elements added since the last sync, which triggers a sync.
+     * @throws IllegalArgumentException - If syncBatchSize is not positive.
+     * @throws UncheckedIOException     - If the log could not be read or created.
+     */
+    public DurableConcurrentBuffer(Path directory, Serializer<T> serializer, int syncBatchSize) {
+        this(directory, serializer, DEFAULT_SEGMENT_SIZE, syncBatchSize, 0, TimeUnit.MILLISECONDS, null);
+    }
+
+    /**
+     * @param syncBatchSize The number of elements added since the last sync, which triggers a sync.
+     * @param syncInterval  The log is also synced periodically on the scheduler, until the buffer is closed.
+     * @throws IllegalArgumentException - If syncBatchSize or syncInterval is not positive.
+     * @throws UncheckedIOException     - If the log could not be read or created.
+     */
+    public DurableConcurrentBuffer(Path directory, Serializer<T> serializer, int syncBatchSize, long syncInterval, TimeUnit unit, ScheduledExecutorService scheduler) {
+        this(directory, serializer, DEFAULT_SEGMENT_SIZE, syncBatchSize, syncInterval, unit, Objects.requireNonNull(scheduler));
+    }
+
+    DurableConcurrentBuffer(Path directory, Serializer<T> serializer, int segmentSize, int syncBatchSize) {
+        this(directory, serializer, segmentSize, syncBatchSize, 0, TimeUnit.MILLISECONDS, null);
+    }
+
+    private DurableConcurrentBuffer(Path directory, Serializer<T> serializer, int segmentSize, int syncBatchSize, long syncInterval, TimeUnit unit, ScheduledExecutorService scheduler) {
+
+        if (syncBatchSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(syncBatchSize));
+
+        if (scheduler != null && syncInterval <= 0)
+            throw new IllegalArgumentException(Long.toString(syncInterval));
+
+        this.directory = directory;
+        this.serializer = Objects.requireNonNull(serializer);
+        this.segmentSize = segmentSize;
+        this.syncBatchSize = syncBatchSize;
+
+        try {
+            Files.createDirectories(directory);
+            replay();
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.periodicSync = scheduler == null ? null : scheduler.scheduleWithFixedDelay(this::syncPeriodically, syncInterval, syncInterval, unit);
+    }
+
+    /**
+     * @throws UncheckedIOException  - If the element could not be written to the log, or the periodic sync failed since the last add or sync.
+     * @throws IllegalStateException - If the buffer is closed.
+     */
+    @Override
+    public void add(T e) {
+        throwPeriodicSyncFailure();
+
+        byte[] payload = serializer.serialize(e);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt(0).put(payload).flip();
+        record.putInt(Integer.BYTES, checksum(record.array(), 0, payload.length));
+
+        long count;
+        synchronized (writeLock) {
+            if (closed)
+                throw new IllegalStateException("Closed");
+            if (broken != null)
+                throw new UncheckedIOException("The log has a torn record which could not be discarded", broken);
+
+            try {
+                if (channelSize > 0 && channelSize + record.remaining() > segmentSize) {
+                    rollSegment();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            int size = record.remaining();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException ex) {
+                discardTornRecord(ex);
+                throw new UncheckedIOException(ex);
+            }
+            channelSize += size;
+            memory.add(e);
+            count = ++appended;
+        }
+
+        signal.signal();
+        if (count - synced >= syncBatchSize) {
+            sync();
+        }
+    }
+
+    /**
+     * The operation is not guaranteed to be atomic.
+     */
+    @Override
+    public void addAll(Collection<T> elements) {
+        for (T e : elements) {
+            add(e);
+        }
+    }
+
+    /**
+     * Syncs all the elements added so far to the disk. Concurrent calls are grouped into a single fsync.
+     *
+     * @throws UncheckedIOException - If the log could not be synced, or the periodic sync failed since the last add or sync.
+     */
+    public void sync() {
+        throwPeriodicSyncFailure();
+        synchronized (syncLock) {
+            long target = appended;
+            if (synced >= target) {
+                return;
+            }
+
+            FileChannel current;
+            synchronized (writeLock) {
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                synchronized (writeLock) {
+                    if (channel == current) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                // Rolled meanwhile, the closed segment was synced before it was closed
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * Keeps the schedule running after a failure, which is thrown to the next caller of add or sync instead.
+     */
+    private void syncPeriodically() {
+        try {
+            sync();
+        } catch (UncheckedIOException e) {
+            periodicSyncFailure = e;
+        }
+    }
+
+    private void throwPeriodicSyncFailure() {
+        UncheckedIOException failure = periodicSyncFailure;
+        if (failure != null) {
+            periodicSyncFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Acknowledges all the elements removed so far, so they are not replayed, and deletes the segment files which have only acknowledged elements.
+     *
+     * @throws UncheckedIOException - If the acknowledgement could not be written.
+     */
+    public synchronized void acknowledge() {
+        if (acknowledged == nextToRemove) {
+            return;
+        }
+
+        try {
+            Path temp = directory.resolve(ACKNOWLEDGED_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(0, nextToRemove);
+                while (value.hasRemaining()) {
+                    out.write(value);
+                }
+                out.force(false);
+            }
+            Files.move(temp, directory.resolve(ACKNOWLEDGED_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            acknowledged = nextToRemove;
+
+            for (Path file : removeAcknowledgedSegments()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<T> getAndRemoveAll() {
+        List<T> result = new ArrayList<>();
+        drainTo(result, Integer.MAX_VALUE);
+        return result;
+    }
+
+    @Override
+    public List<T> getAndRemove(int maxElementsToRemove) {
+        List<T> result = new ArrayList<>();
+        drainTo(result, maxElementsToRemove);
+        return result;
+    }
+
+    @Override
+    public synchronized int drainTo(Collection<? super T> target, int maxElementsToRemove) {
+        int removed = memory.drainTo(target, maxElementsToRemove);
+        nextToRemove += removed;
+        return removed;
+    }
+
+    @Override
+    public synchronized int drain(int maxElementsToRemove, Consumer<? super T> consumer) {
+        int removed = 0;
+        try {
+            removed = memory.drain(maxElementsToRemove, consumer);
+        } finally {
+            nextToRemove += removed;
+        }
+        return removed;
+    }
+
+    @Override
+    public int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+        return signal.awaitAndDrainTo(this, target, minElements, maxElements, timeout, unit);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return memory.isEmpty();
+    }
+
+    /**
+     * A durable buffer never drops elements.
+     *
+     * @return 0
+     */
+    @Override
+    public long getDroppedCount() {
+        return 0;
+    }
+
+    /**
+     * Syncs and closes the log. Elements which were not acknowledged are replayed by the next buffer created on the directory.
+     *
+     * @throws UncheckedIOException - If the log could not be synced or closed.
+     */
+    @Override
+    public void close() {
+        if (periodicSync != null) {
+            periodicSync.cancel(false);
+        }
+        sync();
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // Elements added after the sync above are synced too
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    int getNumberOfSegments() {
+        synchronized (writeLock) {
+            return segments.size();
+        }
+    }
+
+    private void replay() throws IOException {
+        Path acknowledgedFile = directory.resolve(ACKNOWLEDGED_FILE);
+        if (Files.exists(acknowledgedFile)) {
+            acknowledged = ByteBuffer.wrap(Files.readAllBytes(acknowledgedFile)).getLong();
+        }
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = new ArrayList<>();
+            list.filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX) && f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().forEach(files::add);
+        }
+
+        long sequence = acknowledged;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            segments.addLast(new Segment(sequence, file));
+
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (bytes.remaining() >= HEADER_SIZE) {
+                int start = bytes.position();
+                int length = bytes.getInt();
+                int checksum = bytes.getInt();
+                if (length < 0 || length > bytes.remaining() || checksum != checksum(bytes.array(), bytes.arrayOffset() + start, length)) {
+                    // A torn write of a crash, or the zero-filled tail of a file extended but not synced, the rest of the segment is ignored
+                    break;
+                }
+
+                ByteBuffer payload = bytes.slice();
+                payload.limit(length);
+                if (sequence >= acknowledged) {
+                    memory.add(serializer.deserialize(payload.asReadOnlyBuffer()));
+                }
+                bytes.position(bytes.position() + length);
+                sequence++;
+            }
+        }
+
+        appended = Math.max(sequence, acknowledged);
+        synced = appended;
+        nextToRemove = acknowledged;
+        for (Path file : removeAcknowledgedSegments()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The checksum of the record at the offset, which covers its length too, so zeros are never a valid record.
+     */
+    private static int checksum(byte[] record, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(record, offset, Integer.BYTES);
+        crc.update(record, offset + HEADER_SIZE, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Makes the creation, and the renaming, of the files of the directory durable.
+     */
+    private void syncDirectory() throws IOException {
+        if (SYNC_DIRECTORY) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * @return The files of the segments which have only acknowledged elements, except the current segment.
+     */
+    private List<Path> removeAcknowledgedSegments() {
+        List<Path> removed = new ArrayList<>();
+        synchronized (writeLock) {
+            while (segments.size() > 1) {
+                Iterator<Segment> it = segments.iterator();
+                Segment first = it.next();
+                if (it.next().firstSequence > acknowledged) {
+                    break;
+                }
+                segments.removeFirst();
+                removed.add(first.file);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Truncates the torn record of a failed write, or if that fails too, continues in a new segment, so records are never appended after it.
+     * The failures of doing so are suppressed by the failure of the write.
+     */
+    private void discardTornRecord(IOException failure) {
+        try {
+            channel.truncate(channelSize);
+            channel.position(channelSize);
+        } catch (IOException truncateFailure) {
+            failure.addSuppressed(truncateFailure);
+            try {
+                rollSegment();
+            } catch (IOException rollFailure) {
+                failure.addSuppressed(rollFailure);
+                broken = failure;
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment();
+    }
+
+    /**
+     * A new segment is opened on every start, so records are never appended after a torn write.
+     */
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, appended, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channelSize = 0;
+        if (!segments.isEmpty() && segments.peekLast().firstSequence == appended) {
+            // The last segment had no complete records, and was truncated
+            segments.removeLast();
+        }
+        segments.addLast(new Segment(appended, file));
+        syncDirectory();
+    }
+
+    private static final class Segment {
+
+        final long firstSequence;
+        final Path file;
+
+        Segment(long firstSequence, Path file) {
+            this.firstSequence = firstSequence;
+            this.file = file;
+        }
+    }
+}
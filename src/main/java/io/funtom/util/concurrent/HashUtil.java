@@ -2,12 +2,15 @@ package io.funtom.util.concurrent;
 
 final class HashUtil {
 
+    static final int MAX_BOUND = 1 << 16;
+
     private HashUtil() {
     }
 
-    static int boundedHash(Object o, int upperBoundExclusive) {
-        int h = o.hashCode();
-
+    /**
+     * @param powerOfTwoUpperBound Must be a power of two, see {@link #ceilingPowerOfTwo(int)}
+     */
+    static int boundedHash(int h, int powerOfTwoUpperBound) {
         // Protection against poor hash functions.
         // Used by java.util.concurrent.ConcurrentHashMap
         // Spread bits to regularize both segment and index locations,
@@ -19,6 +22,29 @@ final class HashUtil {
         h += (h << 2) + (h << 14);
         h ^= (h >>> 16);
 
-        return Math.abs(h % upperBoundExclusive);
+        return h & (powerOfTwoUpperBound - 1);
+    }
+
+    /**
+     * @return The smallest power of two which is greater than or equal to n, but not greater than {@link #MAX_BOUND}
+     * @throws IllegalArgumentException - If n is not positive.
+     */
+    static int ceilingPowerOfTwo(int n) {
+        return ceilingPowerOfTwo(n, MAX_BOUND);
+    }
+
+    /**
+     * @param maxPowerOfTwo Must be a power of two
+     * @return The smallest power of two which is greater than or equal to n, but not greater than maxPowerOfTwo
+     * @throws IllegalArgumentException - If n is not positive.
+     */
+    static int ceilingPowerOfTwo(int n, int maxPowerOfTwo) {
+        if (n <= 0)
+            throw new IllegalArgumentException(Integer.toString(n));
+
+        if (n >= maxPowerOfTwo)
+            return maxPowerOfTwo;
+
+        return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
     }
 }
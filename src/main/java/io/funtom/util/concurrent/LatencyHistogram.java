@@ -0,0 +1,86 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of durations in nanoseconds, with fixed buckets laid out like the ones of HdrHistogram:
+ * durations below 32 have a bucket each, and every power of two range above, [2^k, 2^(k+1)), is split into 32 buckets of equal width.
+ * So the upper bound of a bucket is within 1/32 (about 3%) of any duration it counts, from nanoseconds up to Long.MAX_VALUE.
+ * <p>
+ * Recording a duration is a single adder increment. The adder of a bucket is created by its first duration, so a histogram of durations
+ * which fall in a few buckets stays small.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int NUMBER_OF_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(NUMBER_OF_BUCKETS);
+
+    void record(long nanos) {
+        int bucket = bucketOf(nanos);
+        LongAdder adder = buckets.get(bucket);
+        if (adder == null) {
+            buckets.compareAndSet(bucket, null, new LongAdder());
+            adder = buckets.get(bucket);
+        }
+        adder.increment();
+    }
+
+    long[] counts() {
+        long[] counts = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            LongAdder adder = buckets.get(i);
+            counts[i] = adder == null ? 0 : adder.sum();
+        }
+        return counts;
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return nanos <= 0 ? 0 : (int) nanos;
+        }
+        // The top SUB_BUCKET_BITS + 1 bits of the duration select its bucket
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (nanos >>> shift);
+    }
+
+    /**
+     * @return The largest duration counted by the bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        // Overflows to Long.MAX_VALUE for the last bucket
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * @return The upper bound of the bucket holding the percentile, or 0 if the histogram is empty.
+     */
+    static long percentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+}
@@ -0,0 +1,92 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock behind a {@link SynchronizedExecutor}, behind each key of a {@link PerKeySynchronizedExecutor}, or behind each stripe of a {@link StripedSynchronizedExecutor}.
+ */
+public enum LockPolicy {
+
+    /**
+     * A non-fair {@link ReentrantLock}, which parks a caller as soon as the lock is found held. The default.
+     */
+    REENTRANT {
+        @Override
+        Lock newLock() {
+            return new ReentrantLock();
+        }
+
+        @Override
+        Lock newPaddedLock() {
+            return new PaddedReentrantLock();
+        }
+    },
+
+    /**
+     * A reentrant lock which spins before parking a caller, for about twice the recently observed hold time of the lock,
+     * and parks right away when the lock is held for more than a few microseconds.
+     * Lowers the latency of contended executions of short tasks, which would otherwise pay for parking and waking up the caller.
+     */
+    ADAPTIVE_SPIN {
+        @Override
+        Lock newLock() {
+            return new AdaptiveSpinLock();
+        }
+
+        @Override
+        Lock newPaddedLock() {
+            return new PaddedAdaptiveSpinLock();
+        }
+    },
+
+    /**
+     * A non-fair, <b>non-reentrant</b> lock, which is a single object instead of the two objects of a {@link #REENTRANT} lock,
+     * to save memory when many keys are locked at once.
+     * Executing a task from within a task of the same executor (or the same key) deadlocks.
+     */
+    COMPACT {
+        @Override
+        Lock newLock() {
+            return new CompactLock();
+        }
+
+        @Override
+        Lock newPaddedLock() {
+            return new PaddedCompactLock();
+        }
+    };
+
+    abstract Lock newLock();
+
+    /**
+     * For locks allocated one after the other, and used by different threads, like the locks of the stripes of a {@link StripedSynchronizedExecutor}.
+     *
+     * @return A lock padded with a cache line, which is not sharing its cache line with the state of the locks allocated right after it.
+     */
+    abstract Lock newPaddedLock();
+
+    @SuppressWarnings("unused")
+    private static final class PaddedReentrantLock extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedAdaptiveSpinLock extends AdaptiveSpinLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedCompactLock extends CompactLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,148 @@
+package io.funtom.util.concurrent;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A concurrent buffer of primitive longs, with the same guarantees as an unbounded {@link ConcurrentBuffer}, without boxing the elements.
+ * The elements are stored in a linked list of long[] segments. A producer claims the next slot of the tail segment with a single atomic increment,
+ * writes the element into it and publishes it by setting the bit of the slot in a bitmap of the segment, which costs 1 bit per element.
+ * Removal operations are synchronized, and copy the published elements out of the segments FIFO ordered, into a new array, a caller owned array or a {@link LongConsumer}.
+ * <p>
+ * Elements claimed but not yet published by their producer, are returned by the next removal that finds them published.
+ * Segments are allocated as the buffer grows, and reclaimed by the garbage collector once they are removed.
+ */
+public final class LongConcurrentBuffer {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 1024;
+    private static final int INITIAL_RESULT_SIZE = 16;
+
+    private final ArraySegments<long[]> segments;
+
+    public LongConcurrentBuffer() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize The number of elements in a segment.
+     * @throws IllegalArgumentException - If segmentSize is not positive.
+     */
+    public LongConcurrentBuffer(int segmentSize) {
+        this.segments = new ArraySegments<>(segmentSize, long[]::new);
+    }
+
+    public void add(long e) {
+        while (true) {
+            ArraySegments.Segment<long[]> t = segments.tail();
+            int i = t.claimed.getAndIncrement();
+            if (i < t.values.length) {
+                t.values[i] = e;
+                t.publish(i);
+                return;
+            }
+            segments.appendSegment(t);
+        }
+    }
+
+    /**
+     * The operation is not guaranteed to be atomic.
+     */
+    public void addAll(long... elements) {
+        for (long e : elements) {
+            add(e);
+        }
+    }
+
+    /**
+     * Get an remove all the current elements in the buffer.
+     *
+     * @return An array contains all the element in the buffer at the time the removal began, FIFO ordered.
+     */
+    public long[] getAndRemoveAll() {
+        return getAndRemove(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #getAndRemoveAll} but only up to maxElementsToRemove elements will be returned.
+     *
+     * @throws IllegalArgumentException - If maxElementsToRemove is negative.
+     */
+    public synchronized long[] getAndRemove(int maxElementsToRemove) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        long[] result = new long[Math.min(maxElementsToRemove, INITIAL_RESULT_SIZE)];
+        int removed = drainTo(result, 0, result.length);
+        while (removed == result.length && removed < maxElementsToRemove) {
+            result = Arrays.copyOf(result, (int) Math.min(2L * result.length, maxElementsToRemove));
+            removed += drainTo(result, removed, result.length - removed);
+        }
+        return removed == result.length ? result : Arrays.copyOf(result, removed);
+    }
+
+    /**
+     * Removes up to target.length elements, and copies them to the target array from its start, FIFO ordered.
+     * Draining into the same caller owned array every time, makes a periodic drain loop allocation free.
+     *
+     * @return The number of elements removed.
+     */
+    public int drainTo(long[] target) {
+        return drainTo(target, 0, target.length);
+    }
+
+    /**
+     * Removes up to length elements, and copies them to the target array starting at offset, FIFO ordered.
+     *
+     * @return The number of elements removed.
+     * @throws IndexOutOfBoundsException - If offset and length are out of the bounds of the target array.
+     */
+    public synchronized int drainTo(long[] target, int offset, int length) {
+
+        if (offset < 0 || length < 0 || length > target.length - offset)
+            throw new IndexOutOfBoundsException(offset + ", " + length);
+
+        return segments.drainTo(target, offset, length);
+    }
+
+    /**
+     * Removes all the current elements in the buffer, and passes them one by one to the consumer, FIFO ordered.
+     * If the consumer throws, the elements it was already given are removed, and the rest remain in the buffer.
+     *
+     * @return The number of elements removed.
+     */
+    public int drainTo(LongConsumer consumer) {
+        return drain(Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Same as {@link #drainTo(LongConsumer)} but only up to maxElementsToRemove elements will be removed.
+     *
+     * @return The number of elements removed.
+     * @throws IllegalArgumentException - If maxElementsToRemove is negative.
+     */
+    public synchronized int drain(int maxElementsToRemove, LongConsumer consumer) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        int removed = 0;
+        while (removed < maxElementsToRemove) {
+            int i = segments.removeNext();
+            if (i < 0) {
+                break;
+            }
+
+            removed++;
+            consumer.accept(segments.head().values[i]);
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if the buffer has no elements, and no elements are being added to it.
+     */
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+}
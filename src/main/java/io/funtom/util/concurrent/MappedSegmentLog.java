@@ -0,0 +1,261 @@
+package io.funtom.util.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A FIFO log of length prefixed records, stored in memory mapped segment files in a directory.
+ * A segment file is deleted once all its records are read. All the operations are synchronized, except that read(...) calls its consumer outside of the monitor.
+ * <p>
+ * A segment is unmapped before its file is deleted, instead of when its buffer is garbage collected, so the disk space is reclaimed right away,
+ * and the delete does not fail on platforms which do not delete mapped files. So the records given to the consumer of read(...) are only valid during the call.
+ */
+final class MappedSegmentLog implements AutoCloseable {
+
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int READ_BATCH_SIZE = 1024;
+    private static final Consumer<MappedByteBuffer> UNMAPPER = unmapper();
+
+    private final Path directory;
+    private final String filePrefix;
+    private final int segmentSize;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    // The segments closed while a read was in progress, deleted when the read returns, as its consumer may still use their records
+    private final List<Segment> closedSegments = new ArrayList<>();
+    private boolean reading;
+    private boolean closed;
+
+    MappedSegmentLog(Path directory, String filePrefix, int segmentSize) {
+        if (segmentSize <= HEADER_SIZE)
+            throw new IllegalArgumentException(Integer.toString(segmentSize));
+
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * A record larger than the segment size is written to a segment of its own.
+     *
+     * @throws UncheckedIOException - If a new segment file could not be created.
+     */
+    synchronized void append(byte[] record) {
+        if (closed)
+            throw new IllegalStateException("Closed");
+
+        int size = HEADER_SIZE + record.length;
+        Segment last = segments.peekLast();
+        if (last == null || last.buffer.capacity() - last.writePosition < size) {
+            last = createSegment(Math.max(segmentSize, size));
+            segments.addLast(last);
+        }
+
+        last.buffer.putInt(last.writePosition, record.length);
+        ByteBuffer target = last.buffer.duplicate();
+        target.position(last.writePosition + HEADER_SIZE);
+        target.put(record);
+        last.writePosition += size;
+    }
+
+    /**
+     * Passes up to maxRecords records to the consumer, FIFO ordered, and deletes the segments which were fully read.
+     * The records are sliced in batches under the monitor, and passed to the consumer after releasing it, so appends never wait for the consumer.
+     * Only one thread may read at a time.
+     * If the consumer throws, the records it was already given are read, and the rest remain in the log.
+     *
+     * @return The number of records read.
+     */
+    int read(int maxRecords, Consumer<ByteBuffer> consumer) {
+        int read = 0;
+        while (read < maxRecords) {
+            int requested = Math.min(maxRecords - read, READ_BATCH_SIZE);
+            List<ByteBuffer> batch = peek(requested);
+            int given = 0;
+            try {
+                for (ByteBuffer record : batch) {
+                    given++;
+                    consumer.accept(record);
+                }
+            } finally {
+                skip(given);
+                read += given;
+            }
+            if (batch.size() < requested) {
+                break;
+            }
+        }
+        return read;
+    }
+
+    /**
+     * The records are never written again once appended, so their slices remain valid outside of the monitor.
+     *
+     * @return Read-only slices of up to maxRecords of the first records, which are left in the log.
+     */
+    private synchronized List<ByteBuffer> peek(int maxRecords) {
+        reading = true;
+        List<ByteBuffer> records = new ArrayList<>();
+        for (Segment segment : segments) {
+            int position = segment.readPosition;
+            while (position < segment.writePosition && records.size() < maxRecords) {
+                int length = segment.buffer.getInt(position);
+                ByteBuffer record = segment.buffer.duplicate();
+                record.position(position + HEADER_SIZE);
+                record.limit(position + HEADER_SIZE + length);
+                records.add(record.slice().asReadOnlyBuffer());
+                position += HEADER_SIZE + length;
+            }
+            if (records.size() == maxRecords) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads the first records, and deletes the segments which were fully read, as the consumer is done with their records.
+     */
+    private synchronized void skip(int records) {
+        reading = false;
+        if (closed) {
+            deleteClosedSegments();
+            return;
+        }
+        while (!segments.isEmpty()) {
+            Segment first = segments.peekFirst();
+            if (first.readPosition == first.writePosition) {
+                segments.removeFirst();
+                delete(first);
+                continue;
+            }
+            if (records == 0) {
+                break;
+            }
+            first.readPosition += HEADER_SIZE + first.buffer.getInt(first.readPosition);
+            records--;
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.readPosition < segment.writePosition) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of segment files currently on disk.
+     */
+    synchronized int getNumberOfSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Deletes all the segment files, the records which were not read are lost.
+     * If a read is in progress, the files are deleted once its consumer returns.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closedSegments.addAll(segments);
+        segments.clear();
+        if (!reading) {
+            deleteClosedSegments();
+        }
+    }
+
+    private void deleteClosedSegments() {
+        while (!closedSegments.isEmpty()) {
+            delete(closedSegments.remove(closedSegments.size() - 1));
+        }
+    }
+
+    private Segment createSegment(int size) {
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, filePrefix, ".segment");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Segment segment) {
+        UNMAPPER.accept(segment.buffer);
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return A function releasing the mapping of a buffer, which must never be accessed again, or a function doing nothing if the JVM does not allow it,
+     * in which case the mapping is released when the buffer is garbage collected.
+     */
+    private static Consumer<MappedByteBuffer> unmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> invokeQuietly(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available before Java 9
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = invokeQuietly(cleaner, buffer);
+                if (bufferCleaner != null) {
+                    invokeQuietly(clean, bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> {
+            };
+        }
+    }
+
+    private static Object invokeQuietly(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+            return null;
+        }
+    }
+
+    private static final class Segment {
+
+        final Path file;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        int readPosition;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
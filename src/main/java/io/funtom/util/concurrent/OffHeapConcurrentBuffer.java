@@ -0,0 +1,255 @@
+package io.funtom.util.concurrent;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * A concurrent buffer of serialized records, which keeps the records outside of the heap, with the same guarantees as an unbounded {@link ConcurrentBuffer}.
+ * The records are appended length prefixed into a linked list of segments, which are direct {@link ByteBuffer}s by default,
+ * or any other buffers, e.g. memory mapped files, returned by a user supplied segment allocator.
+ * A producer claims the bytes of its record with a single atomic addition, copies the record into the segment,
+ * and commits it by setting the bit of the record in a bitmap of the segment, which takes 1 bit per 4 bytes of the segment.
+ * <p>
+ * Removal operations are synchronized, and return every record as a read-only slice of its segment, FIFO ordered, so the record is not copied again.
+ * A slice keeps its whole segment reachable, segments are reclaimed once all the slices of their records are unreachable.
+ * A removal returns the records up to the first one still being written, which is returned by a later removal,
+ * so a slow producer only delays the records claimed after its own.
+ */
+public final class OffHeapConcurrentBuffer {
+
+    private static final int DEFAULT_SEGMENT_CAPACITY = 1 << 20;
+    private static final int HEADER_SIZE = Integer.BYTES;
+    // A claim adds the record to the count of records in the high half of the claims of a segment, and its size to the bytes in the low half
+    private static final long RECORD_CLAIM = 1L << Integer.SIZE;
+
+    private final int segmentCapacity;
+    private final IntFunction<ByteBuffer> segmentAllocator;
+    private final Runnable beforeCommit;
+    private final AtomicReference<Segment> tail;
+    private Segment head;
+    private int headPosition;
+    private int headIndex;
+
+    /**
+     * Creates a buffer of direct segments of 1MB.
+     */
+    public OffHeapConcurrentBuffer() {
+        this(DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Creates a buffer of direct segments.
+     *
+     * @param segmentCapacity The number of bytes in a segment, which limits the size of a record to segmentCapacity - 4.
+     * @throws IllegalArgumentException - If segmentCapacity is not larger than 4.
+     */
+    public OffHeapConcurrentBuffer(int segmentCapacity) {
+        this(segmentCapacity, ByteBuffer::allocateDirect);
+    }
+
+    /**
+     * @param segmentCapacity  The number of bytes in a segment, which limits the size of a record to segmentCapacity - 4.
+     * @param segmentAllocator Returns a new buffer with segmentCapacity bytes remaining from its position, which is used by the segment only.
+     * @throws IllegalArgumentException - If segmentCapacity is not larger than 4.
+     */
+    public OffHeapConcurrentBuffer(int segmentCapacity, IntFunction<ByteBuffer> segmentAllocator) {
+        this(segmentCapacity, segmentAllocator, () -> {
+        });
+    }
+
+    OffHeapConcurrentBuffer(int segmentCapacity, IntFunction<ByteBuffer> segmentAllocator, Runnable beforeCommit) {
+        if (segmentCapacity <= HEADER_SIZE)
+            throw new IllegalArgumentException(Integer.toString(segmentCapacity));
+
+        this.segmentCapacity = segmentCapacity;
+        this.segmentAllocator = Objects.requireNonNull(segmentAllocator);
+        this.beforeCommit = beforeCommit;
+        this.head = newSegment();
+        this.tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * @throws IllegalArgumentException - If the record does not fit in a segment.
+     */
+    public void add(byte[] record) {
+        add(ByteBuffer.wrap(record));
+    }
+
+    /**
+     * Adds the remaining bytes of the record. The position of the record is not changed.
+     *
+     * @throws IllegalArgumentException - If the record does not fit in a segment.
+     */
+    public void add(ByteBuffer record) {
+        int length = record.remaining();
+        int size = HEADER_SIZE + length;
+        if (length > segmentCapacity - HEADER_SIZE)
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment of " + segmentCapacity + " bytes");
+
+        while (true) {
+            Segment t = tail.get();
+            long claim = t.claims.getAndAdd(RECORD_CLAIM + size);
+            int position = (int) claim;
+            if (position <= segmentCapacity - size) {
+                ByteBuffer target = t.buffer.duplicate();
+                target.putInt(position, length);
+                target.position(position + HEADER_SIZE);
+                target.put(record.duplicate());
+                beforeCommit.run();
+                t.commit((int) (claim >>> Integer.SIZE));
+                return;
+            }
+
+            if (position <= segmentCapacity) {
+                // The first claim which does not fit seals the segment
+                t.limit = position;
+            }
+            appendSegment(t);
+        }
+    }
+
+    /**
+     * Get an remove all the current records in the buffer.
+     *
+     * @return A list of read-only slices of all the records in the buffer at the time the removal began, FIFO ordered.
+     */
+    public List<ByteBuffer> getAndRemoveAll() {
+        return getAndRemove(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #getAndRemoveAll} but only up to maxRecordsToRemove records will be returned.
+     *
+     * @throws IllegalArgumentException - If maxRecordsToRemove is negative.
+     */
+    public List<ByteBuffer> getAndRemove(int maxRecordsToRemove) {
+        List<ByteBuffer> result = new ArrayList<>();
+        drain(maxRecordsToRemove, result::add);
+        return result;
+    }
+
+    /**
+     * Removes all the current records in the buffer, and passes them one by one to the consumer as read-only slices, FIFO ordered.
+     * If the consumer throws, the records it was already given are removed, and the rest remain in the buffer.
+     *
+     * @return The number of records removed.
+     */
+    public int drainTo(Consumer<? super ByteBuffer> consumer) {
+        return drain(Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Same as {@link #drainTo(Consumer)} but only up to maxRecordsToRemove records will be removed.
+     *
+     * @return The number of records removed.
+     * @throws IllegalArgumentException - If maxRecordsToRemove is negative.
+     */
+    public synchronized int drain(int maxRecordsToRemove, Consumer<? super ByteBuffer> consumer) {
+
+        if (maxRecordsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxRecordsToRemove));
+
+        int removed = 0;
+        while (removed < maxRecordsToRemove && nextSegmentToRemove()) {
+            Segment h = head;
+            // The commit of a record publishes its bytes, and the record at the end of a sealed segment is never committed
+            if (headPosition == h.limit || !h.isCommitted(headIndex)) {
+                break;
+            }
+
+            int length = h.buffer.getInt(headPosition);
+            ByteBuffer record = slice(h.buffer, headPosition + HEADER_SIZE, length);
+            headPosition += HEADER_SIZE + length;
+            headIndex++;
+            removed++;
+            consumer.accept(record);
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if the buffer has no records, and no records are being added to it.
+     */
+    public synchronized boolean isEmpty() {
+        nextSegmentToRemove();
+        Segment h = head;
+        return h == tail.get() && (int) h.claims.get() == headPosition;
+    }
+
+    /**
+     * Moves the head to the next segment, if the head segment is sealed and fully removed, and the next one is linked.
+     *
+     * @return false if the head segment is fully removed and the next one is not linked yet.
+     */
+    private boolean nextSegmentToRemove() {
+        if (headPosition != head.limit) {
+            return true;
+        }
+
+        Segment next = head.next.get();
+        if (next == null) {
+            return false;
+        }
+        head = next;
+        headPosition = 0;
+        headIndex = 0;
+        return true;
+    }
+
+    private void appendSegment(Segment full) {
+        Segment next = full.next.get();
+        if (next == null) {
+            Segment created = newSegment();
+            next = full.next.compareAndSet(null, created) ? created : full.next.get();
+        }
+        tail.compareAndSet(full, next);
+    }
+
+    private Segment newSegment() {
+        ByteBuffer buffer = segmentAllocator.apply(segmentCapacity);
+        if (buffer.remaining() < segmentCapacity)
+            throw new IllegalStateException("Segment allocator returned " + buffer.remaining() + " bytes instead of " + segmentCapacity);
+
+        return new Segment(buffer.slice(), segmentCapacity);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        record.limit(position + length);
+        return record.slice().asReadOnlyBuffer();
+    }
+
+    private static final class Segment {
+
+        final ByteBuffer buffer;
+        // The number of records claimed in the high half, and the number of bytes claimed in the low half
+        final AtomicLong claims = new AtomicLong();
+        // A bit per record which fits, as a record takes at least HEADER_SIZE bytes
+        final AtomicLongArray committed;
+        final AtomicReference<Segment> next = new AtomicReference<>();
+        volatile int limit = -1;
+
+        Segment(ByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.committed = new AtomicLongArray((capacity / HEADER_SIZE + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        void commit(int index) {
+            long bit = 1L << index;
+            committed.getAndAccumulate(index / Long.SIZE, bit, (word, b) -> word | b);
+        }
+
+        boolean isCommitted(int index) {
+            int word = index / Long.SIZE;
+            return word < committed.length() && (committed.get(word) & 1L << index) != 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Locks the locks of several keys in a canonical order, so threads locking overlapping sets of keys never deadlock each other.
+ * The keys are ordered by their segment index, then by their hash, and then by the identity hash of their per-key value,
+ * which is the same instance for all the threads using the key at the same time.
+ * If two keys are still tied, a tie lock shared by all the multi-key executions of the executor is locked first.
+ */
+final class OrderedLocks {
+
+    private static final Comparator<Entry> CANONICAL_ORDER = Comparator
+            .<Entry>comparingInt(e -> e.segmentIndex)
+            .thenComparingInt(e -> e.hash)
+            .thenComparingInt(e -> e.identity);
+
+    private final List<Entry> entries;
+
+    OrderedLocks(int expectedSize) {
+        this.entries = new ArrayList<>(expectedSize);
+    }
+
+    void add(int segmentIndex, int hash, Object value, Lock lock) {
+        entries.add(new Entry(segmentIndex, hash, System.identityHashCode(value), lock));
+    }
+
+    <R> R execute(Lock tieLock, Supplier<R> task) {
+        entries.sort(CANONICAL_ORDER);
+        boolean tied = false;
+        for (int i = 1; i < entries.size() && !tied; i++) {
+            tied = CANONICAL_ORDER.compare(entries.get(i - 1), entries.get(i)) == 0;
+        }
+
+        if (tied) {
+            tieLock.lock();
+        }
+        int locked = 0;
+        try {
+            for (Entry e : entries) {
+                e.lock.lock();
+                locked++;
+            }
+            return task.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                entries.get(i).lock.unlock();
+            }
+            if (tied) {
+                tieLock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final int segmentIndex;
+        final int hash;
+        final int identity;
+        final Lock lock;
+
+        Entry(int segmentIndex, int hash, int identity, Lock lock) {
+            this.segmentIndex = segmentIndex;
+            this.hash = hash;
+            this.identity = identity;
+            this.lock = lock;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.funtom.util.concurrent;
+
+/**
+ * What a bounded buffer does with an element added while the buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The adding thread is suspended until there is room for the element.
+     */
+    BLOCK,
+
+    /**
+     * The element is not added, and an {@link IllegalStateException} is thrown to the adding thread.
+     */
+    FAIL,
+
+    /**
+     * The element is silently dropped, and counted as dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest element in the buffer is silently dropped to make room for the element, and counted as dropped.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,18 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An AtomicLong which is not sharing its cache line with the fields of objects allocated right after it.
+ */
+@SuppressWarnings("unused")
+final class PaddedAtomicLong extends AtomicLong {
+
+    private static final long serialVersionUID = 1L;
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+}
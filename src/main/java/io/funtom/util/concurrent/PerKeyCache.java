@@ -0,0 +1,288 @@
+package io.funtom.util.concurrent;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A size bounded loading cache, which loads the missing values with a {@link SingleFlightLoader}, so concurrent misses of equals keys share a single load.
+ * It replaces the pattern of computeIfAbsent under a per-key lock, without blocking hits of other keys while a key is loading.
+ * <p>
+ * The entries are spread over segments, and each segment evicts its least recently used entry when it is full,
+ * so the cache keeps about the maximumSize most recently used entries. The segments are locked only for the lookup or the update of an entry, never while loading.
+ * <p>
+ * Entries may expire a fixed time after they were loaded, and may be refreshed ahead of their expiration:
+ * the first hit of an entry older than the refresh time triggers a reload on the executor, while the hit, and the hits that follow until the reload completes,
+ * still get the current value. If the reload fails, the current value is kept, and the next hit triggers another reload.
+ * <p>
+ * Null values are returned to the caller, but never cached. A key invalidated while it is loading is not cached by that load.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ * @param <V>        The type of the cached values
+ */
+public final class PerKeyCache<KEY_TYPE, V> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+
+    private final Function<? super KEY_TYPE, ? extends V> loader;
+    private final SingleFlightLoader<KEY_TYPE, V> flights;
+    private final Segment<KEY_TYPE, V>[] segments;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final Executor executor;
+    private final LongSupplier nanoTime;
+
+    /**
+     * Creates a cache whose entries never expire. getAsync(...) loads on the {@link ForkJoinPool#commonPool()}.
+     *
+     * @param loader      Loads the value of a missing key. Called by a single thread at a time per key.
+     * @param maximumSize The maximum number of entries in the cache.
+     * @throws IllegalArgumentException - If maximumSize is not positive.
+     */
+    public PerKeyCache(Function<? super KEY_TYPE, ? extends V> loader, int maximumSize) {
+        this(loader, maximumSize, 0, 0, TimeUnit.NANOSECONDS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param loader            Loads the value of a missing key. Called by a single thread at a time per key.
+     * @param maximumSize       The maximum number of entries in the cache.
+     * @param expireAfterWrite  The time after which a loaded entry expires, or 0 if entries never expire.
+     * @param refreshAfterWrite The time after which a hit reloads the entry in the background, or 0 if entries are never refreshed.
+     *                          Only useful if shorter than expireAfterWrite.
+     * @param executor          Runs the refreshes, and the loads of getAsync(...).
+     * @throws IllegalArgumentException - If maximumSize is not positive, or expireAfterWrite or refreshAfterWrite is negative.
+     */
+    public PerKeyCache(Function<? super KEY_TYPE, ? extends V> loader, int maximumSize, long expireAfterWrite, long refreshAfterWrite, TimeUnit unit, Executor executor) {
+        this(loader, maximumSize, expireAfterWrite, refreshAfterWrite, unit, executor, System::nanoTime);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    PerKeyCache(Function<? super KEY_TYPE, ? extends V> loader, int maximumSize, long expireAfterWrite, long refreshAfterWrite, TimeUnit unit, Executor executor,
+                LongSupplier nanoTime) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(maximumSize));
+        if (expireAfterWrite < 0)
+            throw new IllegalArgumentException(Long.toString(expireAfterWrite));
+        if (refreshAfterWrite < 0)
+            throw new IllegalArgumentException(Long.toString(refreshAfterWrite));
+
+        this.loader = Objects.requireNonNull(loader);
+        this.flights = new SingleFlightLoader<>();
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.refreshAfterWriteNanos = unit.toNanos(refreshAfterWrite);
+        this.executor = Objects.requireNonNull(executor);
+        this.nanoTime = nanoTime;
+
+        // Never more segments than entries, so every segment holds at least one entry
+        int numberOfSegments = Integer.highestOneBit(Math.min(DEFAULT_CONCURRENCY_LEVEL, maximumSize));
+        segments = (Segment<KEY_TYPE, V>[]) new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            int capacity = maximumSize / numberOfSegments + (i < maximumSize % numberOfSegments ? 1 : 0);
+            segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    /**
+     * @return The cached value of the key, or the value loaded on the calling thread if it is missing or expired.
+     * If an equals key is already loading, waits for that load instead.
+     */
+    public V get(KEY_TYPE key) {
+        long now = nanoTime.getAsLong();
+        Entry<V> entry = getEntry(key, now);
+        if (entry != null) {
+            return entry.value;
+        }
+        return flights.load(key, this::loadAndCache);
+    }
+
+    /**
+     * @return A future completed with the cached value of the key, or with the value loaded on the executor if it is missing or expired.
+     * The calling thread never waits for a load.
+     */
+    public CompletableFuture<V> getAsync(KEY_TYPE key) {
+        long now = nanoTime.getAsLong();
+        Entry<V> entry = getEntry(key, now);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry.value);
+        }
+        return flights.loadAsync(key, k -> CompletableFuture.supplyAsync(() -> loadAndCache(k), executor));
+    }
+
+    /**
+     * @return The cached value of the key, or null if it is missing or expired. Never loads.
+     */
+    public V getIfPresent(KEY_TYPE key) {
+        Entry<V> entry = getSegment(key).get(key, nanoTime.getAsLong(), expireAfterWriteNanos);
+        return entry == null ? null : entry.value;
+    }
+
+    public void invalidate(KEY_TYPE key) {
+        getSegment(key).remove(key);
+    }
+
+    public void invalidateAll() {
+        for (Segment<KEY_TYPE, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return The number of entries in the cache, including expired entries which were not removed yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<KEY_TYPE, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return The live entry of the key, after triggering its refresh if it is due, or null if it is missing or expired.
+     */
+    private Entry<V> getEntry(KEY_TYPE key, long now) {
+        Entry<V> entry = getSegment(key).get(key, now, expireAfterWriteNanos);
+        if (entry != null && refreshAfterWriteNanos > 0 && now - entry.loadTime >= refreshAfterWriteNanos) {
+            refresh(key, entry);
+        }
+        return entry;
+    }
+
+    private void refresh(KEY_TYPE key, Entry<V> entry) {
+        if (entry.refreshing.get() || !entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    flights.load(key, this::loadAndCache);
+                } catch (RuntimeException e) {
+                    // Keep the current value, the next hit triggers another refresh
+                } finally {
+                    // Unless the reload replaced the entry, it failed, loaded null or was invalidated, let the next hit of the entry refresh it again
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Runs within the single flight of the key.
+     */
+    private V loadAndCache(KEY_TYPE key) {
+        Segment<KEY_TYPE, V> segment = getSegment(key);
+        long start = nanoTime.getAsLong();
+        Entry<V> current = segment.get(key, start, expireAfterWriteNanos);
+        if (current != null && (refreshAfterWriteNanos == 0 || start - current.loadTime < refreshAfterWriteNanos)) {
+            // Loaded by a flight which completed just before this one started
+            return current.value;
+        }
+
+        Object load = segment.startLoad(key);
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (Throwable e) {
+            segment.abortLoad(key, load);
+            throw e;
+        }
+        if (value == null) {
+            segment.abortLoad(key, load);
+        } else {
+            segment.completeLoad(key, load, new Entry<>(value, nanoTime.getAsLong()));
+        }
+        return value;
+    }
+
+    private Segment<KEY_TYPE, V> getSegment(KEY_TYPE key) {
+        return segments[HashUtil.boundedHash(key.hashCode(), segments.length)];
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+        final long loadTime;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(V value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * An access ordered map of entries, guarded by its own monitor.
+     */
+    private static final class Segment<K, V> {
+
+        private final LinkedHashMap<K, Entry<V>> entries;
+        // The loads in progress, an invalidation of a key removes its load, so the load does not cache its value
+        private final Map<K, Object> loads = new HashMap<>();
+
+        Segment(int capacity) {
+            this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized Entry<V> get(K key, long now, long expireAfterWriteNanos) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && expireAfterWriteNanos > 0 && now - entry.loadTime >= expireAfterWriteNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        /**
+         * @return A token of the load, to pass to completeLoad(...) or abortLoad(...).
+         */
+        synchronized Object startLoad(K key) {
+            Object load = new Object();
+            loads.put(key, load);
+            return load;
+        }
+
+        /**
+         * Caches the loaded entry, unless the key was invalidated since the load started.
+         */
+        synchronized void completeLoad(K key, Object load, Entry<V> entry) {
+            if (loads.remove(key, load)) {
+                entries.put(key, entry);
+            }
+        }
+
+        synchronized void abortLoad(K key, Object load) {
+            loads.remove(key, load);
+        }
+
+        synchronized void remove(K key) {
+            loads.remove(key);
+            entries.remove(key);
+        }
+
+        synchronized void clear() {
+            loads.clear();
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+
+/**
+ * An Executor which executes tasks on the caller threads, synchronously on a <b>per-key basis</b> like {@link PerKeySynchronizedExecutor},
+ * and coalesces the tasks of a key which were submitted while the key was busy into a single batch, executed by a user supplied {@link BatchFunction}.
+ * <p>
+ * Coalescing is done by flat combining: a submitted task is queued on its key, and the first caller which finds the key free becomes the combiner.
+ * The combiner executes the queued tasks in batches, in the order they were submitted, until its own task is executed, and hands every other caller its result.
+ * The other callers park until their task is executed, or until the key is free and they can become the combiner.
+ * So under contention on a hot key, a single thread executes the batches back to back, instead of handing the key over from thread to thread for every task.
+ * <p>
+ * Batches of equals keys never overlap each other, and each of them happens-before the next one.
+ * If the batch function throws, or returns a wrong number of results, every task of the batch fails with the same exception.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ * @param <T>        The type of the task inputs
+ * @param <R>        The type of the task results
+ */
+public final class PerKeyCoalescingExecutor<KEY_TYPE, T, R> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final ConcurrencySegment<KEY_TYPE, Combiner<T, R>>[] segments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+    private final BatchFunction<? super KEY_TYPE, T, R> batchFunction;
+    private final int maxBatchSize;
+
+    public PerKeyCoalescingExecutor(BatchFunction<? super KEY_TYPE, T, R> batchFunction) {
+        this(batchFunction, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param maxBatchSize The maximum number of tasks passed to the batch function at once.
+     * @throws IllegalArgumentException - If maxBatchSize is not positive.
+     */
+    public PerKeyCoalescingExecutor(BatchFunction<? super KEY_TYPE, T, R> batchFunction, int maxBatchSize) {
+        this(batchFunction, maxBatchSize, DEFAULT_CONCURRENCY_LEVEL, Object::hashCode);
+    }
+
+    /**
+     * @param maxBatchSize     The maximum number of tasks passed to the batch function at once.
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If maxBatchSize or concurrencyLevel is not positive.
+     */
+    @SuppressWarnings({"unchecked"})
+    public PerKeyCoalescingExecutor(BatchFunction<? super KEY_TYPE, T, R> batchFunction, int maxBatchSize, int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxBatchSize));
+
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.batchFunction = Objects.requireNonNull(batchFunction);
+        this.maxBatchSize = maxBatchSize;
+        this.keyHasher = keyHasher;
+        segments = (ConcurrencySegment<KEY_TYPE, Combiner<T, R>>[]) new ConcurrencySegment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new ConcurrencySegment<>(Combiner::new);
+        }
+    }
+
+    /**
+     * Executes the task of the input, possibly in a batch with other tasks of the same key.
+     *
+     * @return The result of the task.
+     */
+    public R execute(KEY_TYPE key, T input) {
+        ConcurrencySegment<KEY_TYPE, Combiner<T, R>> s = getSegment(key);
+        Combiner<T, R> combiner = s.getValue(key);
+        try {
+            Task<T, R> task = new Task<>(input);
+            combiner.pending.add(task);
+            // Waiting is not interruptible, but park returns at once while the interrupt flag is set, so clear it while waiting and restore it after
+            boolean interrupted = false;
+            while (!task.done) {
+                if (combiner.combining.compareAndSet(false, true)) {
+                    if (interrupted) {
+                        interrupted = false;
+                        Thread.currentThread().interrupt();
+                    }
+                    try {
+                        combine(key, combiner, task);
+                    } finally {
+                        combiner.combining.set(false);
+                    }
+
+                    // Tasks queued while combining, hand the key to one of their callers
+                    Task<T, R> next = combiner.pending.peek();
+                    if (next != null) {
+                        LockSupport.unpark(next.caller);
+                    }
+                } else {
+                    LockSupport.park(this);
+                    interrupted |= Thread.interrupted();
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return task.getResult();
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    private void combine(KEY_TYPE key, Combiner<T, R> combiner, Task<T, R> own) {
+        List<Task<T, R>> batch = new ArrayList<>();
+        while (!own.done) {
+            batch.clear();
+            for (Task<T, R> t; batch.size() < maxBatchSize && (t = combiner.pending.poll()) != null; ) {
+                batch.add(t);
+            }
+            executeBatch(key, batch);
+        }
+    }
+
+    private void executeBatch(KEY_TYPE key, List<Task<T, R>> batch) {
+        List<T> inputs = new ArrayList<>(batch.size());
+        for (Task<T, R> t : batch) {
+            inputs.add(t.input);
+        }
+
+        List<R> results = null;
+        Throwable failure = null;
+        try {
+            results = batchFunction.apply(key, inputs);
+            if (results == null || results.size() != batch.size()) {
+                failure = new IllegalStateException("Batch of " + batch.size() + " tasks returned " + (results == null ? null : results.size()) + " results");
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        Thread current = Thread.currentThread();
+        for (int i = 0; i < batch.size(); i++) {
+            Task<T, R> t = batch.get(i);
+            if (failure == null) {
+                t.result = results.get(i);
+            } else {
+                t.failure = failure;
+            }
+            t.done = true;
+            if (t.caller != current) {
+                LockSupport.unpark(t.caller);
+            }
+        }
+    }
+
+    private ConcurrencySegment<KEY_TYPE, Combiner<T, R>> getSegment(KEY_TYPE key) {
+        int segmentIndex = HashUtil.boundedHash(keyHasher.applyAsInt(key), segments.length);
+        return segments[segmentIndex];
+    }
+
+    private static final class Combiner<T, R> {
+        final Queue<Task<T, R>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean combining = new AtomicBoolean();
+    }
+
+    private static final class Task<T, R> {
+
+        final T input;
+        final Thread caller = Thread.currentThread();
+        R result;
+        Throwable failure;
+        volatile boolean done;
+
+        Task(T input) {
+            this.input = input;
+        }
+
+        R getResult() {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package io.funtom.util.concurrent;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * An Executor which executes tasks on the caller thread, at most at a fixed rate on a <b>per-key basis</b>.
+ * By saying <b>per-key</b>, we mean that the rate applies to threads calling it with equals keys, e.g. at most 100 calls per second per tenant,
+ * while calls with keys that are not equals never wait for each other. Tasks are not executed synchronously, only their start is limited.
+ * <p>
+ * Every key has a token bucket, which holds up to maxBurst permits and is refilled at permitsPerSecond. A bucket is a single atomic long,
+ * the time its next permit is due, so taking a permit is a single compare and set, and never locks.
+ * execute(...) waits for the next permit of the key, tryExecute(...) gives up if the next permit is not due within a timeout,
+ * and tryExecuteNow(...) gives up if no permit is available.
+ * <p>
+ * A bucket is created when its key is first used. An idle bucket, which is refilled up to maxBurst permits, is equivalent to a new one,
+ * so idle buckets are evicted once in a while by the callers of the segment, the same way {@link ConcurrencySegment} evicts a key which has no users.
+ * Every sweep checks a bounded number of buckets, and the next sweep resumes where it stopped, so no caller pays for a scan of all the keys.
+ * <p>
+ * Waiting for a permit is not interruptible, a caller interrupted while waiting still executes its task, with its interrupt status set.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ */
+public final class PerKeyRateLimitedExecutor<KEY_TYPE> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+    private static final int EVICTION_INTERVAL = 64;
+    // More buckets than calls between sweeps, so the sweeps keep up even if every call creates a bucket
+    private static final int EVICTION_BATCH = 128;
+    private static final long DEAD = Long.MIN_VALUE;
+
+    private final Segment<KEY_TYPE>[] segments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final LongSupplier nanoTime;
+    private final long origin;
+
+    /**
+     * Creates an executor that allows bursts of a single permit.
+     *
+     * @param permitsPerSecond The rate of the permits of every key.
+     * @throws IllegalArgumentException - If permitsPerSecond is not positive.
+     */
+    public PerKeyRateLimitedExecutor(double permitsPerSecond) {
+        this(permitsPerSecond, 1);
+    }
+
+    /**
+     * @param permitsPerSecond The rate of the permits of every key.
+     * @param maxBurst         The number of permits of a key that can be taken at once, after the key was idle.
+     * @throws IllegalArgumentException - If permitsPerSecond or maxBurst is not positive.
+     */
+    public PerKeyRateLimitedExecutor(double permitsPerSecond, int maxBurst) {
+        this(permitsPerSecond, maxBurst, DEFAULT_CONCURRENCY_LEVEL, Object::hashCode);
+    }
+
+    /**
+     * @param permitsPerSecond The rate of the permits of every key.
+     * @param maxBurst         The number of permits of a key that can be taken at once, after the key was idle.
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If permitsPerSecond, maxBurst or concurrencyLevel is not positive.
+     */
+    public PerKeyRateLimitedExecutor(double permitsPerSecond, int maxBurst, int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        this(permitsPerSecond, maxBurst, concurrencyLevel, keyHasher, System::nanoTime);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    PerKeyRateLimitedExecutor(double permitsPerSecond, int maxBurst, int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher, LongSupplier nanoTime) {
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException(Double.toString(permitsPerSecond));
+        if (maxBurst <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxBurst));
+
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.keyHasher = keyHasher;
+        this.nanosPerPermit = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = (maxBurst - 1) * nanosPerPermit;
+        this.nanoTime = nanoTime;
+        this.origin = nanoTime.getAsLong();
+        segments = (Segment<KEY_TYPE>[]) new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * Waits for the next permit of the key, and executes the task.
+     */
+    public void execute(KEY_TYPE key, Runnable task) {
+        awaitPermit(acquire(key, Long.MAX_VALUE));
+        task.run();
+    }
+
+    /**
+     * Waits for the next permit of the key, and executes the task.
+     */
+    public <R> R execute(KEY_TYPE key, Supplier<R> task) {
+        awaitPermit(acquire(key, Long.MAX_VALUE));
+        return task.get();
+    }
+
+    /**
+     * @return true if the task was executed, false if the next permit of the key is not due within the timeout, in which case no permit is taken.
+     */
+    public boolean tryExecute(KEY_TYPE key, Runnable task, long timeout, TimeUnit unit) {
+        long wait = acquire(key, Math.max(0, unit.toNanos(timeout)));
+        if (wait < 0) {
+            return false;
+        }
+        awaitPermit(wait);
+        task.run();
+        return true;
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if the next permit of the key is not due within the timeout.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     */
+    public <R> Optional<R> tryExecute(KEY_TYPE key, Supplier<R> task, long timeout, TimeUnit unit) {
+        long wait = acquire(key, Math.max(0, unit.toNanos(timeout)));
+        if (wait < 0) {
+            return Optional.empty();
+        }
+        awaitPermit(wait);
+        return SynchronizedExecutor.result(task.get());
+    }
+
+    /**
+     * @return true if the task was executed, false if no permit of the key is available.
+     */
+    public boolean tryExecuteNow(KEY_TYPE key, Runnable task) {
+        if (acquire(key, 0) < 0) {
+            return false;
+        }
+        task.run();
+        return true;
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if no permit of the key is available.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     */
+    public <R> Optional<R> tryExecuteNow(KEY_TYPE key, Supplier<R> task) {
+        if (acquire(key, 0) < 0) {
+            return Optional.empty();
+        }
+        return SynchronizedExecutor.result(task.get());
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<KEY_TYPE> segment : segments) {
+            size += segment.buckets.size();
+        }
+        return size;
+    }
+
+    /**
+     * Takes the next permit of the key, if it is due within maxWaitNanos.
+     *
+     * @return The time to wait for the permit, or -1 if no permit was taken.
+     */
+    private long acquire(KEY_TYPE key, long maxWaitNanos) {
+        Segment<KEY_TYPE> segment = segments[HashUtil.boundedHash(keyHasher.applyAsInt(key), segments.length)];
+        long now = now();
+        if (segment.operations.incrementAndGet() % EVICTION_INTERVAL == 0) {
+            segment.evictIdleBuckets(now);
+        }
+
+        while (true) {
+            AtomicLong bucket = segment.buckets.get(key);
+            if (bucket == null) {
+                AtomicLong created = new AtomicLong(now + nanosPerPermit);
+                bucket = segment.buckets.putIfAbsent(key, created);
+                if (bucket == null) {
+                    return 0;
+                }
+            }
+
+            long wait = tryTakePermit(bucket, now, maxWaitNanos);
+            if (wait != DEAD) {
+                return wait;
+            }
+            // The bucket was evicted, help removing it and retry
+            segment.buckets.remove(key, bucket);
+        }
+    }
+
+    /**
+     * The bucket holds the time its next permit is due, the permits up to maxBurst are taken ahead of it.
+     *
+     * @return The time to wait for the permit, -1 if it is not due within maxWaitNanos, or DEAD if the bucket was evicted.
+     */
+    private long tryTakePermit(AtomicLong bucket, long now, long maxWaitNanos) {
+        while (true) {
+            long due = bucket.get();
+            if (due == DEAD) {
+                return DEAD;
+            }
+            long next = Math.max(due, now);
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (bucket.compareAndSet(due, next + nanosPerPermit)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    private long now() {
+        // Relative to the creation of the executor, so a due time is never negative, and never equals DEAD
+        return nanoTime.getAsLong() - origin;
+    }
+
+    private static void awaitPermit(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        // parkNanos returns at once while the interrupt flag is set, so clear it while waiting and restore it after
+        boolean interrupted = false;
+        while (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+            interrupted |= Thread.interrupted();
+            nanos = deadline - System.nanoTime();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Segment<K> {
+
+        final ConcurrentMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicInteger operations = new AtomicInteger();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+        // Guarded by evicting, where the next sweep resumes
+        private Iterator<Map.Entry<K, AtomicLong>> cursor;
+
+        /**
+         * Checks the next EVICTION_BATCH buckets. A bucket whose next permit is due by now is full, kills it so no permit is taken from it anymore, and removes it.
+         * A caller that runs into a sweep in progress skips it.
+         */
+        void evictIdleBuckets(long now) {
+            if (!evicting.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (cursor == null) {
+                    cursor = buckets.entrySet().iterator();
+                }
+                for (int i = 0; i < EVICTION_BATCH && cursor.hasNext(); i++) {
+                    Map.Entry<K, AtomicLong> e = cursor.next();
+                    AtomicLong bucket = e.getValue();
+                    long due = bucket.get();
+                    if (due != DEAD && due <= now && bucket.compareAndSet(due, DEAD)) {
+                        buckets.remove(e.getKey(), bucket);
+                    }
+                }
+                if (!cursor.hasNext()) {
+                    cursor = null;
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+}
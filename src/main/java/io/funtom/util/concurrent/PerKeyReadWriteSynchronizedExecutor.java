@@ -1,7 +1,17 @@
 package io.funtom.util.concurrent;
 
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * An Executor which executes tasks on the caller thread.
@@ -19,63 +29,258 @@ import java.util.function.Supplier;
  * <p>
  * On the other hand, the executor is implemented so calls from different threads, with keys that are not equals, will be executed concurrently with minimal contention between the calls.
  * Calling threads might be suspended.
+ * The try and interruptible variants of the methods behave like the ones of {@link SynchronizedExecutor}, for the tasks of the same key.
+ * See {@link ReadWriteLockPolicy} for the available locks.
+ * <p>
+ * A task may also be executed atomically for several keys, with execute(readKeys, writeKeys, ...). The locks of the keys are locked in a canonical order,
+ * so multi-key executions with overlapping keys never deadlock each other, and executions with disjoint keys run concurrently.
+ * Calling the executor from within one of its tasks is not covered by the canonical order, and might deadlock.
  */
 public final class PerKeyReadWriteSynchronizedExecutor<KEY_TYPE> {
 
-    private static final int CONCURRENCY_LEVEL = 32;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
 
-    private final ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor>[] concurrencySegments;
+    private final ConcurrencySegment<KEY_TYPE, ReadWriteLock>[] concurrencySegments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+    private final Lock tieLock = new ReentrantLock();
 
-    @SuppressWarnings({"unchecked"})
     public PerKeyReadWriteSynchronizedExecutor() {
-        concurrencySegments = (ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor>[]) new ConcurrencySegment[CONCURRENCY_LEVEL];
-        for (int i = 0; i < CONCURRENCY_LEVEL; i++) {
-            concurrencySegments[i] = new ConcurrencySegment<>(ReadWriteSynchronizedExecutor::new);
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    public PerKeyReadWriteSynchronizedExecutor(int concurrencyLevel) {
+        this(concurrencyLevel, Object::hashCode);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    public PerKeyReadWriteSynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        this(concurrencyLevel, keyHasher, ReadWriteLockPolicy.NON_FAIR);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @param policy           The lock of each key.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    @SuppressWarnings({"unchecked"})
+    public PerKeyReadWriteSynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher, ReadWriteLockPolicy policy) {
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.keyHasher = keyHasher;
+        concurrencySegments = (ConcurrencySegment<KEY_TYPE, ReadWriteLock>[]) new ConcurrencySegment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            concurrencySegments[i] = new ConcurrencySegment<>(policy::newLock);
         }
     }
 
     public void readExecute(KEY_TYPE key, Runnable task) {
-        ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor> s = getSegment(key);
-        ReadWriteSynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
         try {
-            executor.readExecute(task);
+            SynchronizedExecutor.execute(lock.readLock(), task);
         } finally {
             s.releaseKey(key);
         }
     }
 
     public <R> R readExecute(KEY_TYPE key, Supplier<R> task) {
-        ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor> s = getSegment(key);
-        ReadWriteSynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
         try {
-            return executor.readExecute(task);
+            return ReadWriteSynchronizedExecutor.readExecute(lock, task);
         } finally {
             s.releaseKey(key);
         }
     }
 
     public void writeExecute(KEY_TYPE key, Runnable task) {
-        ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor> s = getSegment(key);
-        ReadWriteSynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
         try {
-            executor.writeExecute(task);
+            SynchronizedExecutor.execute(lock.writeLock(), task);
         } finally {
             s.releaseKey(key);
         }
     }
 
     public <R> R writeExecute(KEY_TYPE key, Supplier<R> task) {
-        ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor> s = getSegment(key);
-        ReadWriteSynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.execute(lock.writeLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public boolean tryReadExecute(KEY_TYPE key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock.readLock(), task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryReadExecute(KEY_TYPE key, Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock.readLock(), task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public boolean tryReadExecuteNow(KEY_TYPE key, Runnable task) {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock.readLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryReadExecuteNow(KEY_TYPE key, Supplier<R> task) {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock.readLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public void readExecuteInterruptibly(KEY_TYPE key, Runnable task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            SynchronizedExecutor.executeInterruptibly(lock.readLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> R readExecuteInterruptibly(KEY_TYPE key, Supplier<R> task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
         try {
-            return executor.writeExecute(task);
+            return SynchronizedExecutor.executeInterruptibly(lock.readLock(), task);
         } finally {
             s.releaseKey(key);
         }
     }
 
-    private ConcurrencySegment<KEY_TYPE, ReadWriteSynchronizedExecutor> getSegment(KEY_TYPE key) {
-        int segmentIndex = HashUtil.boundedHash(key, CONCURRENCY_LEVEL);
+    public boolean tryWriteExecute(KEY_TYPE key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock.writeLock(), task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryWriteExecute(KEY_TYPE key, Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock.writeLock(), task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public boolean tryWriteExecuteNow(KEY_TYPE key, Runnable task) {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock.writeLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryWriteExecuteNow(KEY_TYPE key, Supplier<R> task) {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock.writeLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public void writeExecuteInterruptibly(KEY_TYPE key, Runnable task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            SynchronizedExecutor.executeInterruptibly(lock.writeLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> R writeExecuteInterruptibly(KEY_TYPE key, Supplier<R> task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, ReadWriteLock> s = getSegment(key);
+        ReadWriteLock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.executeInterruptibly(lock.writeLock(), task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    /**
+     * Executes the task while holding the read locks of the readKeys and the write locks of the writeKeys.
+     * A key which is in both collections is only write locked, and equals keys are locked once.
+     */
+    public void execute(Collection<? extends KEY_TYPE> readKeys, Collection<? extends KEY_TYPE> writeKeys, Runnable task) {
+        execute(readKeys, writeKeys, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executes the task while holding the read locks of the readKeys and the write locks of the writeKeys.
+     * A key which is in both collections is only write locked, and equals keys are locked once.
+     */
+    public <R> R execute(Collection<? extends KEY_TYPE> readKeys, Collection<? extends KEY_TYPE> writeKeys, Supplier<R> task) {
+        Set<KEY_TYPE> writeKeySet = new LinkedHashSet<>(writeKeys);
+        Set<KEY_TYPE> keySet = new LinkedHashSet<>(writeKeySet);
+        keySet.addAll(readKeys);
+
+        List<KEY_TYPE> acquired = new ArrayList<>(keySet.size());
+        try {
+            OrderedLocks locks = new OrderedLocks(keySet.size());
+            for (KEY_TYPE key : keySet) {
+                int hash = keyHasher.applyAsInt(key);
+                int segmentIndex = HashUtil.boundedHash(hash, concurrencySegments.length);
+                ReadWriteLock lock = concurrencySegments[segmentIndex].getValue(key);
+                acquired.add(key);
+                locks.add(segmentIndex, hash, lock, writeKeySet.contains(key) ? lock.writeLock() : lock.readLock());
+            }
+            return locks.execute(tieLock, task);
+        } finally {
+            for (KEY_TYPE key : acquired) {
+                getSegment(key).releaseKey(key);
+            }
+        }
+    }
+
+    private ConcurrencySegment<KEY_TYPE, ReadWriteLock> getSegment(KEY_TYPE key) {
+        int segmentIndex = HashUtil.boundedHash(keyHasher.applyAsInt(key), concurrencySegments.length);
         return concurrencySegments[segmentIndex];
     }
 }
@@ -0,0 +1,179 @@
+package io.funtom.util.concurrent;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * An Executor which executes tasks on the caller thread, with at most a fixed number of tasks executed concurrently on a <b>per-key basis</b>.
+ * By saying <b>per-key</b>, we mean that the limit applies to threads calling it with equals keys, e.g. at most 4 concurrent calls per tenant,
+ * while calls with keys that are not equals never wait for each other.
+ * Calling threads might be suspended.
+ * <p>
+ * The tryExecute(...) methods give up if a permit could not be acquired within a timeout, tryExecuteNow(...) give up immediately,
+ * and executeInterruptibly(...) wait for as long as it takes, unless the calling thread is interrupted.
+ * The {@link Semaphore} of a key is created when the key is first used, and reclaimed once the key has no callers.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ */
+public final class PerKeySemaphoreExecutor<KEY_TYPE> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+
+    private final ConcurrencySegment<KEY_TYPE, Semaphore>[] segments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+
+    /**
+     * @param permitsPerKey The maximal number of tasks executed concurrently with equals keys.
+     * @throws IllegalArgumentException - If permitsPerKey is not positive.
+     */
+    public PerKeySemaphoreExecutor(int permitsPerKey) {
+        this(permitsPerKey, false, DEFAULT_CONCURRENCY_LEVEL, Object::hashCode);
+    }
+
+    /**
+     * @param permitsPerKey    The maximal number of tasks executed concurrently with equals keys.
+     * @param fair             Whether the callers of a key acquire its permits in the order they arrived.
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If permitsPerKey or concurrencyLevel is not positive.
+     */
+    @SuppressWarnings({"unchecked"})
+    public PerKeySemaphoreExecutor(int permitsPerKey, boolean fair, int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        if (permitsPerKey <= 0)
+            throw new IllegalArgumentException(Integer.toString(permitsPerKey));
+
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.keyHasher = keyHasher;
+        segments = (ConcurrencySegment<KEY_TYPE, Semaphore>[]) new ConcurrencySegment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new ConcurrencySegment<>(() -> new Semaphore(permitsPerKey, fair));
+        }
+    }
+
+    public void execute(KEY_TYPE key, Runnable task) {
+        execute(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public <R> R execute(KEY_TYPE key, Supplier<R> task) {
+        ConcurrencySegment<KEY_TYPE, Semaphore> s = getSegment(key);
+        Semaphore semaphore = s.getValue(key);
+        try {
+            semaphore.acquireUninterruptibly();
+            try {
+                return task.get();
+            } finally {
+                semaphore.release();
+            }
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    /**
+     * @return true if the task was executed, false if the timeout elapsed before a permit was acquired.
+     * @throws InterruptedException - If the calling thread is interrupted while waiting.
+     */
+    public boolean tryExecute(KEY_TYPE key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryExecute(key, () -> {
+            task.run();
+            return Boolean.TRUE;
+        }, timeout, unit).isPresent();
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if the timeout elapsed before a permit was acquired.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     * @throws InterruptedException - If the calling thread is interrupted while waiting.
+     */
+    public <R> Optional<R> tryExecute(KEY_TYPE key, Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Semaphore> s = getSegment(key);
+        Semaphore semaphore = s.getValue(key);
+        try {
+            if (!semaphore.tryAcquire(timeout, unit)) {
+                return Optional.empty();
+            }
+            try {
+                return SynchronizedExecutor.result(task.get());
+            } finally {
+                semaphore.release();
+            }
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    /**
+     * @return true if the task was executed, false if no permit was available.
+     */
+    public boolean tryExecuteNow(KEY_TYPE key, Runnable task) {
+        return tryExecuteNow(key, () -> {
+            task.run();
+            return Boolean.TRUE;
+        }).isPresent();
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if no permit was available.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     */
+    public <R> Optional<R> tryExecuteNow(KEY_TYPE key, Supplier<R> task) {
+        ConcurrencySegment<KEY_TYPE, Semaphore> s = getSegment(key);
+        Semaphore semaphore = s.getValue(key);
+        try {
+            if (!semaphore.tryAcquire()) {
+                return Optional.empty();
+            }
+            try {
+                return SynchronizedExecutor.result(task.get());
+            } finally {
+                semaphore.release();
+            }
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public void executeInterruptibly(KEY_TYPE key, Runnable task) throws InterruptedException {
+        executeInterruptibly(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @throws InterruptedException - If the calling thread is interrupted while waiting.
+     */
+    public <R> R executeInterruptibly(KEY_TYPE key, Supplier<R> task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Semaphore> s = getSegment(key);
+        Semaphore semaphore = s.getValue(key);
+        try {
+            semaphore.acquire();
+            try {
+                return task.get();
+            } finally {
+                semaphore.release();
+            }
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrencySegment<KEY_TYPE, Semaphore> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private ConcurrencySegment<KEY_TYPE, Semaphore> getSegment(KEY_TYPE key) {
+        int segmentIndex = HashUtil.boundedHash(keyHasher.applyAsInt(key), segments.length);
+        return segments[segmentIndex];
+    }
+}
@@ -1,7 +1,15 @@
 package io.funtom.util.concurrent;
 
 import java.util.concurrent.locks.Lock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * An Executor which executes tasks on the caller thread.
@@ -10,41 +18,214 @@ import java.util.function.Supplier;
  * When two threads calling the executor with equals keys, the executions will never overlap each other.
  * On the other hand, the executor is implemented so calls from different threads, with keys that are not equals, will be executed concurrently with minimal contention between the calls.
  * Calling threads might be suspended.
+ * The try and interruptible variants of the methods behave like the ones of {@link SynchronizedExecutor}, for the tasks of the same key.
  * Calling execute from different threads with equals keys has the same memory semantics as locking and releasing a java.util.concurrent.locks.{@link Lock}.
+ * <p>
+ * A task may also be executed atomically for several keys, with execute(Collection, ...). The locks of the keys are locked in a canonical order,
+ * so multi-key executions with overlapping keys never deadlock each other, and executions with disjoint keys run concurrently.
+ * Calling the executor from within one of its tasks is not covered by the canonical order, and might deadlock.
+ * <p>
+ * The contention of the executor can be observed by creating it with {@link ContentionMetrics}.
  */
 public final class PerKeySynchronizedExecutor<KEY_TYPE> {
 
-    private static final int CONCURRENCY_LEVEL = 32;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
 
-    private final ConcurrencySegment<KEY_TYPE, SynchronizedExecutor>[] segments;
+    private final ConcurrencySegment<KEY_TYPE, Lock>[] segments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+    private final Lock tieLock = new ReentrantLock();
+    private final ContentionMetrics<? super KEY_TYPE> metrics;
 
-    @SuppressWarnings({"unchecked"})
     public PerKeySynchronizedExecutor() {
-        segments = (ConcurrencySegment<KEY_TYPE, SynchronizedExecutor>[]) new ConcurrencySegment[CONCURRENCY_LEVEL];
-        for (int i = 0; i < CONCURRENCY_LEVEL; i++) {
-            segments[i] = new ConcurrencySegment<>(SynchronizedExecutor::new);
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    public PerKeySynchronizedExecutor(int concurrencyLevel) {
+        this(concurrencyLevel, Object::hashCode);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    public PerKeySynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        this(concurrencyLevel, keyHasher, LockPolicy.REENTRANT, null);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @param policy           The lock of every key.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    public PerKeySynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher, LockPolicy policy) {
+        this(concurrencyLevel, keyHasher, policy, null);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @param metrics          Records the contention of the executor, or null to record nothing.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     * @throws IllegalStateException    - If the metrics are already used by another executor.
+     */
+    public PerKeySynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher, ContentionMetrics<? super KEY_TYPE> metrics) {
+        this(concurrencyLevel, keyHasher, LockPolicy.REENTRANT, metrics);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @param policy           The lock of every key.
+     * @param metrics          Records the contention of the executor, or null to record nothing.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     * @throws IllegalStateException    - If the metrics are already used by another executor.
+     */
+    @SuppressWarnings({"unchecked"})
+    public PerKeySynchronizedExecutor(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher, LockPolicy policy, ContentionMetrics<? super KEY_TYPE> metrics) {
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.keyHasher = keyHasher;
+        segments = (ConcurrencySegment<KEY_TYPE, Lock>[]) new ConcurrencySegment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new ConcurrencySegment<>(policy::newLock);
+        }
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.attach(segments);
         }
     }
 
     public void execute(KEY_TYPE key, Runnable task) {
-        int segmentIndex = HashUtil.boundedHash(key, CONCURRENCY_LEVEL);
-        ConcurrencySegment<KEY_TYPE, SynchronizedExecutor> s = segments[segmentIndex];
-        SynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
         try {
-            executor.execute(task);
+            if (metrics == null) {
+                SynchronizedExecutor.execute(lock, task);
+            } else {
+                metrics.execute(key, lock, () -> {
+                    task.run();
+                    return null;
+                });
+            }
         } finally {
             s.releaseKey(key);
         }
     }
 
     public <R> R execute(KEY_TYPE key, Supplier<R> task) {
-        int segmentIndex = HashUtil.boundedHash(key, CONCURRENCY_LEVEL);
-        ConcurrencySegment<KEY_TYPE, SynchronizedExecutor> s = segments[segmentIndex];
-        SynchronizedExecutor executor = s.getValue(key);
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            return metrics == null ? SynchronizedExecutor.execute(lock, task) : metrics.execute(key, lock, task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public boolean tryExecute(KEY_TYPE key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock, task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryExecute(KEY_TYPE key, Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecute(lock, task, timeout, unit);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public boolean tryExecuteNow(KEY_TYPE key, Runnable task) {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock, task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> Optional<R> tryExecuteNow(KEY_TYPE key, Supplier<R> task) {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            return SynchronizedExecutor.tryExecuteNow(lock, task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public void executeInterruptibly(KEY_TYPE key, Runnable task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
+        try {
+            SynchronizedExecutor.executeInterruptibly(lock, task);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    public <R> R executeInterruptibly(KEY_TYPE key, Supplier<R> task) throws InterruptedException {
+        ConcurrencySegment<KEY_TYPE, Lock> s = getSegment(key);
+        Lock lock = s.getValue(key);
         try {
-            return executor.execute(task);
+            return SynchronizedExecutor.executeInterruptibly(lock, task);
         } finally {
             s.releaseKey(key);
         }
     }
+
+    /**
+     * Executes the task while holding the locks of all the keys. Equals keys are locked once.
+     */
+    public void execute(Collection<? extends KEY_TYPE> keys, Runnable task) {
+        execute(keys, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executes the task while holding the locks of all the keys. Equals keys are locked once.
+     */
+    public <R> R execute(Collection<? extends KEY_TYPE> keys, Supplier<R> task) {
+        List<KEY_TYPE> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        if (distinctKeys.size() == 1) {
+            return execute(distinctKeys.get(0), task);
+        }
+
+        List<KEY_TYPE> acquired = new ArrayList<>(distinctKeys.size());
+        try {
+            OrderedLocks locks = new OrderedLocks(distinctKeys.size());
+            for (KEY_TYPE key : distinctKeys) {
+                int hash = keyHasher.applyAsInt(key);
+                int segmentIndex = HashUtil.boundedHash(hash, segments.length);
+                Lock lock = segments[segmentIndex].getValue(key);
+                acquired.add(key);
+                locks.add(segmentIndex, hash, lock, lock);
+            }
+            return locks.execute(tieLock, task);
+        } finally {
+            for (KEY_TYPE key : acquired) {
+                getSegment(key).releaseKey(key);
+            }
+        }
+    }
+
+    private ConcurrencySegment<KEY_TYPE, Lock> getSegment(KEY_TYPE key) {
+        int segmentIndex = HashUtil.boundedHash(keyHasher.applyAsInt(key), segments.length);
+        return segments[segmentIndex];
+    }
 }
@@ -0,0 +1,267 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A read-write lock which bounds the time writers wait under a continuous stream of reads.
+ * A reader arriving while a writer holds the lock or waits for it, waits until it is admitted by a releasing writer, instead of joining the current readers.
+ * <p>
+ * When writers prefer writers, a releasing writer hands the lock to the next waiting writer, and admits the waiting readers only when no writer waits.
+ * When phase-fair, a releasing writer always admits all the waiting readers, and the next writer waits only for them,
+ * so reads and writes alternate in phases, and both readers and writers wait for at most one phase of the other kind.
+ * <p>
+ * The state is guarded by a {@link ReentrantLock}, held only while entering or leaving the lock, and waiting threads are parked on its conditions.
+ * The lock is <b>not reentrant</b>, and conditions are not supported.
+ */
+final class QueuedReadWriteLock implements ReadWriteLock {
+
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final Condition readersAdmitted = mutex.newCondition();
+    private final Condition writerAdmitted = mutex.newCondition();
+    private final boolean phaseFair;
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+    private int readers;
+    private int waitingReaders;
+    private int waitingWriters;
+    private boolean writing;
+    private long phase;
+
+    /**
+     * @param phaseFair true for a phase-fair lock, false for a writer-preferring lock.
+     */
+    QueuedReadWriteLock(boolean phaseFair) {
+        this.phaseFair = phaseFair;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * @return The number of threads waiting for the read lock or the write lock.
+     */
+    int getQueueLength() {
+        mutex.lock();
+        try {
+            return waitingReaders + waitingWriters;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * @param nanos The time to wait, or a negative value to wait for as long as it takes.
+     */
+    private boolean acquireRead(boolean interruptible, long nanos) throws InterruptedException {
+        mutex.lock();
+        try {
+            if (!writing && waitingWriters == 0) {
+                readers++;
+                return true;
+            }
+            if (nanos == 0) {
+                return false;
+            }
+
+            long arrivalPhase = phase;
+            waitingReaders++;
+            try {
+                while (phase == arrivalPhase) {
+                    if (nanos < 0) {
+                        await(readersAdmitted, interruptible);
+                    } else if (nanos == 0) {
+                        waitingReaders--;
+                        return false;
+                    } else {
+                        nanos = Math.max(0, readersAdmitted.awaitNanos(nanos));
+                    }
+                }
+            } catch (InterruptedException e) {
+                if (phase == arrivalPhase) {
+                    waitingReaders--;
+                    throw e;
+                }
+                // Admitted before the interrupt was noticed, keep the lock and the interrupt status
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private void releaseRead() {
+        mutex.lock();
+        try {
+            if (readers == 0)
+                throw new IllegalMonitorStateException();
+
+            if (--readers == 0 && waitingWriters > 0) {
+                writerAdmitted.signal();
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * @param nanos The time to wait, or a negative value to wait for as long as it takes.
+     */
+    private boolean acquireWrite(boolean interruptible, long nanos) throws InterruptedException {
+        mutex.lock();
+        try {
+            if (!writing && readers == 0) {
+                writing = true;
+                return true;
+            }
+            if (nanos == 0) {
+                return false;
+            }
+
+            waitingWriters++;
+            boolean acquired = false;
+            try {
+                while (writing || readers > 0) {
+                    if (nanos < 0) {
+                        await(writerAdmitted, interruptible);
+                    } else if (nanos == 0) {
+                        return false;
+                    } else {
+                        nanos = Math.max(0, writerAdmitted.awaitNanos(nanos));
+                    }
+                }
+                writing = true;
+                acquired = true;
+                return true;
+            } finally {
+                waitingWriters--;
+                if (!acquired && !writing) {
+                    // Readers held back by this writer, or a wake up meant for another writer, must not be lost
+                    if (waitingWriters == 0) {
+                        admitWaitingReaders();
+                    } else if (readers == 0) {
+                        writerAdmitted.signal();
+                    }
+                }
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private void releaseWrite() {
+        mutex.lock();
+        try {
+            if (!writing)
+                throw new IllegalMonitorStateException();
+
+            writing = false;
+            if (phaseFair || waitingWriters == 0) {
+                admitWaitingReaders();
+            }
+            if (readers == 0 && waitingWriters > 0) {
+                writerAdmitted.signal();
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private void admitWaitingReaders() {
+        if (waitingReaders > 0) {
+            readers += waitingReaders;
+            waitingReaders = 0;
+            phase++;
+            readersAdmitted.signalAll();
+        }
+    }
+
+    private static void await(Condition condition, boolean interruptible) throws InterruptedException {
+        if (interruptible) {
+            condition.await();
+        } else {
+            condition.awaitUninterruptibly();
+        }
+    }
+
+    private final class ReadLock extends QueuedLock {
+
+        @Override
+        boolean acquire(boolean interruptible, long nanos) throws InterruptedException {
+            return acquireRead(interruptible, nanos);
+        }
+
+        @Override
+        public void unlock() {
+            releaseRead();
+        }
+    }
+
+    private final class WriteLock extends QueuedLock {
+
+        @Override
+        boolean acquire(boolean interruptible, long nanos) throws InterruptedException {
+            return acquireWrite(interruptible, nanos);
+        }
+
+        @Override
+        public void unlock() {
+            releaseWrite();
+        }
+    }
+
+    private abstract static class QueuedLock implements Lock {
+
+        abstract boolean acquire(boolean interruptible, long nanos) throws InterruptedException;
+
+        @Override
+        public void lock() {
+            try {
+                acquire(false, -1);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            acquire(true, -1);
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquire(false, 0);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            return acquire(true, Math.max(0, unit.toNanos(time)));
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The lock behind a {@link ReadWriteSynchronizedExecutor}, or behind each key of a {@link PerKeyReadWriteSynchronizedExecutor}.
+ */
+public enum ReadWriteLockPolicy {
+
+    /**
+     * A non-fair {@link ReentrantReadWriteLock}. The default.
+     */
+    NON_FAIR {
+        @Override
+        ReadWriteLock newLock() {
+            return new ReentrantReadWriteLock();
+        }
+    },
+
+    /**
+     * A fair {@link ReentrantReadWriteLock}. Threads acquire the lock in about the order they arrived,
+     * so a waiting writer is not starved by readers arriving after it, at the cost of lower read throughput.
+     */
+    FAIR {
+        @Override
+        ReadWriteLock newLock() {
+            return new ReentrantReadWriteLock(true);
+        }
+    },
+
+    /**
+     * A lock which prefers writers. A reader arriving while a writer waits, waits until no writer waits,
+     * so writers never wait for readers which arrived after them, while a steady stream of writes may starve the readers.
+     * The lock is <b>not reentrant</b>, executing a task from within a task of the same executor (or the same key) might deadlock.
+     */
+    WRITER_PREFERRING {
+        @Override
+        ReadWriteLock newLock() {
+            return new QueuedReadWriteLock(false);
+        }
+    },
+
+    /**
+     * A phase-fair lock. Reads and writes alternate in phases: a reader arriving while a writer waits, waits for that single write,
+     * and a releasing writer admits all the waiting readers before the next writer. Neither readers nor writers are starved,
+     * each of them waits for at most one phase of the other kind.
+     * The lock is <b>not reentrant</b>, executing a task from within a task of the same executor (or the same key) might deadlock.
+     */
+    PHASE_FAIR {
+        @Override
+        ReadWriteLock newLock() {
+            return new QueuedReadWriteLock(true);
+        }
+    },
+
+    /**
+     * A <b>non-reentrant</b> read-write lock, which is a single int state, a queue of waiting threads and its two lock views, with no per-thread hold counts,
+     * for a fraction of the memory of a held {@link #NON_FAIR} lock, when many keys are locked at once.
+     * Readers queue behind waiting writers, so writers are not starved.
+     * Executing a task from within a task of the same executor (or the same key) might deadlock.
+     */
+    COMPACT {
+        @Override
+        ReadWriteLock newLock() {
+            return new CompactReadWriteLock();
+        }
+    },
+
+    /**
+     * A {@link StampedLock}. readExecute(Supplier) first runs the task without locking, and then validates that no write was executed meanwhile.
+     * Only if a write was executed, the task is run again under the read lock.
+     * So reads never write to a shared memory location, as long as there are no writes.
+     * <p>
+     * Since a task may run while a write is executed, it might observe inconsistent state.
+     * It must be free of side effects, and must tolerate inconsistent state (its result and any RuntimeException it throws are discarded).
+     * The lock is <b>not reentrant</b>, executing a task from within a task of the same executor (or the same key) deadlocks.
+     */
+    OPTIMISTIC {
+        @Override
+        ReadWriteLock newLock() {
+            return new StampedReadWriteLock();
+        }
+    };
+
+    abstract ReadWriteLock newLock();
+}
@@ -1,7 +1,9 @@
 package io.funtom.util.concurrent;
 
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Supplier;
 
 /**
@@ -16,31 +18,111 @@ import java.util.function.Supplier;
  * <li>Have the same memory semantics as locking and unlocking the <b>write</b> lock of a java.util.concurrent.lock.{@link ReadWriteLock}</li></ul>
  * <p>
  * Calling threads might be suspended.
+ * The try and interruptible variants of the methods behave like the ones of {@link SynchronizedExecutor}.
+ * <p>
+ * See {@link ReadWriteLockPolicy} for the available locks.
  */
 public final class ReadWriteSynchronizedExecutor {
 
-    private final SynchronizedExecutor readExecutor;
-    private final SynchronizedExecutor writeExecutor;
+    private final ReadWriteLock lock;
 
     public ReadWriteSynchronizedExecutor() {
-        ReadWriteLock lock = new ReentrantReadWriteLock();
-        readExecutor = new SynchronizedExecutor(lock.readLock());
-        writeExecutor = new SynchronizedExecutor(lock.writeLock());
+        this(ReadWriteLockPolicy.NON_FAIR);
+    }
+
+    public ReadWriteSynchronizedExecutor(ReadWriteLockPolicy policy) {
+        this(policy.newLock());
+    }
+
+    ReadWriteSynchronizedExecutor(ReadWriteLock lock) {
+        this.lock = lock;
     }
 
     public void readExecute(Runnable task) {
-        readExecutor.execute(task);
+        SynchronizedExecutor.execute(lock.readLock(), task);
     }
 
     public <R> R readExecute(Supplier<R> task) {
-        return readExecutor.execute(task);
+        return readExecute(lock, task);
     }
 
     public void writeExecute(Runnable task) {
-        writeExecutor.execute(task);
+        SynchronizedExecutor.execute(lock.writeLock(), task);
     }
 
     public <R> R writeExecute(Supplier<R> task) {
-        return writeExecutor.execute(task);
+        return SynchronizedExecutor.execute(lock.writeLock(), task);
+    }
+
+    public boolean tryReadExecute(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return SynchronizedExecutor.tryExecute(lock.readLock(), task, timeout, unit);
+    }
+
+    public <R> Optional<R> tryReadExecute(Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        return SynchronizedExecutor.tryExecute(lock.readLock(), task, timeout, unit);
+    }
+
+    public boolean tryReadExecuteNow(Runnable task) {
+        return SynchronizedExecutor.tryExecuteNow(lock.readLock(), task);
+    }
+
+    public <R> Optional<R> tryReadExecuteNow(Supplier<R> task) {
+        return SynchronizedExecutor.tryExecuteNow(lock.readLock(), task);
+    }
+
+    public void readExecuteInterruptibly(Runnable task) throws InterruptedException {
+        SynchronizedExecutor.executeInterruptibly(lock.readLock(), task);
+    }
+
+    public <R> R readExecuteInterruptibly(Supplier<R> task) throws InterruptedException {
+        return SynchronizedExecutor.executeInterruptibly(lock.readLock(), task);
+    }
+
+    public boolean tryWriteExecute(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return SynchronizedExecutor.tryExecute(lock.writeLock(), task, timeout, unit);
+    }
+
+    public <R> Optional<R> tryWriteExecute(Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        return SynchronizedExecutor.tryExecute(lock.writeLock(), task, timeout, unit);
+    }
+
+    public boolean tryWriteExecuteNow(Runnable task) {
+        return SynchronizedExecutor.tryExecuteNow(lock.writeLock(), task);
+    }
+
+    public <R> Optional<R> tryWriteExecuteNow(Supplier<R> task) {
+        return SynchronizedExecutor.tryExecuteNow(lock.writeLock(), task);
+    }
+
+    public void writeExecuteInterruptibly(Runnable task) throws InterruptedException {
+        SynchronizedExecutor.executeInterruptibly(lock.writeLock(), task);
+    }
+
+    public <R> R writeExecuteInterruptibly(Supplier<R> task) throws InterruptedException {
+        return SynchronizedExecutor.executeInterruptibly(lock.writeLock(), task);
+    }
+
+    /**
+     * Executes the task under the read lock, or first optimistically if the lock is a {@link StampedReadWriteLock}.
+     */
+    static <R> R readExecute(ReadWriteLock lock, Supplier<R> task) {
+        if (lock instanceof StampedReadWriteLock) {
+            StampedLock optimisticLock = ((StampedReadWriteLock) lock).stampedLock;
+            long stamp = optimisticLock.tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    R result = task.get();
+                    if (optimisticLock.validate(stamp)) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    if (optimisticLock.validate(stamp)) {
+                        throw e;
+                    }
+                    // The failure might be caused by a concurrent write, run again under the read lock
+                }
+            }
+        }
+        return SynchronizedExecutor.execute(lock.readLock(), task);
     }
 }
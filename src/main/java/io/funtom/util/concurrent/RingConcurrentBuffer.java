@@ -0,0 +1,228 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A bounded concurrent buffer backed by a preallocated array ring, with the same guarantees as {@link ConcurrentBuffer}.
+ * Adding an element never allocates: a producer claims the next slot of the ring with a single CAS on the tail sequence, and then publishes the element into the slot.
+ * Removal operations are synchronized, so there is only one consumer at a time, which copies the published elements in one pass and frees their slots with a single write to the head sequence.
+ * <p>
+ * The head and tail sequences are padded, so producers and the consumer do not contend on the same cache line.
+ * Adding to a full buffer is handled according to the buffer {@link OverflowPolicy}.
+ * Elements claimed but not yet published by their producer, are returned by the next removal that finds them published.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public final class RingConcurrentBuffer<T> implements BatchBuffer<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 10_000;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0);
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final ConsumerSignal signal = new ConsumerSignal(() -> !isEmpty());
+
+    /**
+     * Creates a buffer which blocks its producers when full.
+     *
+     * @param capacity Rounded up to a power of two.
+     * @throws IllegalArgumentException - If capacity is not positive.
+     */
+    public RingConcurrentBuffer(int capacity) {
+        this(capacity, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param capacity       Rounded up to a power of two.
+     * @param overflowPolicy What to do when an element is added to a full buffer.
+     * @throws IllegalArgumentException - If capacity is not positive.
+     */
+    public RingConcurrentBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        int size = HashUtil.ceilingPowerOfTwo(capacity, MAX_CAPACITY);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+    }
+
+    /**
+     * @throws NullPointerException  - If e is null.
+     * @throws IllegalStateException - If the buffer is full, and its overflow policy is {@link OverflowPolicy#FAIL}.
+     */
+    @Override
+    public void add(T e) {
+        Objects.requireNonNull(e);
+        int attempts = 0;
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() < slots.length()) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.lazySet((int) t & mask, e);
+                    signal.signal();
+                    return;
+                }
+                continue;
+            }
+
+            switch (overflowPolicy) {
+                case BLOCK:
+                    backOff(++attempts);
+                    break;
+                case FAIL:
+                    throw new IllegalStateException("Buffer is full");
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return;
+                case DROP_OLDEST:
+                    dropOldest();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @throws NullPointerException  - If one of the elements is null.
+     * @throws IllegalStateException - If the buffer is full, and its overflow policy is {@link OverflowPolicy#FAIL}. Some of the elements might have been added.
+     */
+    @Override
+    public void addAll(Collection<T> elements) {
+        for (T e : elements) {
+            add(e);
+        }
+    }
+
+    @Override
+    public List<T> getAndRemoveAll() {
+        return getAndRemove(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized List<T> getAndRemove(int maxElementsToRemove) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        List<T> result = new ArrayList<>((int) Math.min(tail.get() - head.get(), maxElementsToRemove));
+        drainTo(result, maxElementsToRemove);
+        return result;
+    }
+
+    @Override
+    public synchronized int drainTo(Collection<? super T> target, int maxElementsToRemove) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        long h = head.get();
+        int available = (int) Math.min(tail.get() - h, maxElementsToRemove);
+
+        int removed = 0;
+        try {
+            for (T e; removed < available && (e = removeSlot(h + removed)) != null; ) {
+                removed++;
+                target.add(e);
+            }
+        } finally {
+            head.lazySet(h + removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized int drain(int maxElementsToRemove, Consumer<? super T> consumer) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        long h = head.get();
+        int available = (int) Math.min(tail.get() - h, maxElementsToRemove);
+
+        int removed = 0;
+        try {
+            for (T e; removed < available && (e = removeSlot(h + removed)) != null; ) {
+                removed++;
+                consumer.accept(e);
+            }
+        } finally {
+            head.lazySet(h + removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+        return signal.awaitAndDrainTo(this, target, minElements, maxElements, timeout, unit);
+    }
+
+    /**
+     * Only called by the consumer, the freed slot is handed to the producers once the head sequence passes it.
+     *
+     * @return The element in the slot, or null if the slot was claimed but not published yet.
+     */
+    private T removeSlot(long sequence) {
+        int index = (int) sequence & mask;
+        T e = slots.get(index);
+        if (e != null) {
+            slots.lazySet(index, null);
+        }
+        return e;
+    }
+
+    /**
+     * @return true if no slot is claimed, elements which are claimed but not published yet are counted as being added.
+     */
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The number of elements the buffer can hold.
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    private synchronized void dropOldest() {
+        long h = head.get();
+        if (tail.get() - h < slots.length()) {
+            // Emptied by a removal meanwhile
+            return;
+        }
+
+        int index = (int) h & mask;
+        if (slots.get(index) == null) {
+            // The oldest element is not published yet
+            Thread.yield();
+            return;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(h + 1);
+        dropped.increment();
+    }
+
+    private static void backOff(int attempts) {
+        if (attempts < SPINS_BEFORE_PARKING) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.funtom.util.concurrent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the elements of a buffer to bytes and back, for buffers which keep their elements outside of the heap.
+ *
+ * @param <T> The type of the elements
+ */
+public interface Serializer<T> {
+
+    byte[] serialize(T element);
+
+    /**
+     * @param bytes A read-only buffer with the serialized element between its position and limit. It is only valid during the call.
+     */
+    T deserialize(ByteBuffer bytes);
+}
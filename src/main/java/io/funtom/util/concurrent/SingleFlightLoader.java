@@ -0,0 +1,148 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Loads values on a <b>per-key basis</b>, so concurrent loads of equals keys share a single in-flight load.
+ * The first caller of a key runs the loader, and the callers that arrive while it is loading wait for its result instead of loading again.
+ * A load which completed is forgotten once all the callers sharing it got its result, so the next caller of the key loads again.
+ * Keep the results in a cache, e.g. {@link PerKeyCache}, to avoid loading them again.
+ * <p>
+ * The callers sharing a load share its failure too. Callers may pass different loaders for the same key, only the loader of the first caller runs.
+ * The state of a key is held in a {@link ConcurrencySegment}, and reclaimed once the key has no callers.
+ *
+ * @param <KEY_TYPE> The type of the keys
+ * @param <V>        The type of the loaded values
+ */
+public final class SingleFlightLoader<KEY_TYPE, V> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+
+    private final ConcurrencySegment<KEY_TYPE, Flight<V>>[] segments;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+
+    public SingleFlightLoader() {
+        this(DEFAULT_CONCURRENCY_LEVEL, Object::hashCode);
+    }
+
+    /**
+     * @param concurrencyLevel The number of segments the keys are spread over. Rounded up to a power of two.
+     * @param keyHasher        Used instead of the keys hashCode() to spread the keys over the segments. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If concurrencyLevel is not positive.
+     */
+    @SuppressWarnings({"unchecked"})
+    public SingleFlightLoader(int concurrencyLevel, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        int numberOfSegments = HashUtil.ceilingPowerOfTwo(concurrencyLevel);
+        this.keyHasher = keyHasher;
+        segments = (ConcurrencySegment<KEY_TYPE, Flight<V>>[]) new ConcurrencySegment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new ConcurrencySegment<>(Flight::new);
+        }
+    }
+
+    /**
+     * Loads the value of the key on the calling thread, or waits for the load already in flight for an equals key.
+     * If the load fails, the exception of the loader is thrown to all the callers sharing the load,
+     * wrapped in a {@link CompletionException} if it is a checked exception.
+     */
+    public V load(KEY_TYPE key, Function<? super KEY_TYPE, ? extends V> loader) {
+        ConcurrencySegment<KEY_TYPE, Flight<V>> s = getSegment(key);
+        Flight<V> flight = s.getValue(key);
+        try {
+            if (flight.start()) {
+                try {
+                    V value = loader.apply(key);
+                    flight.result.complete(value);
+                    return value;
+                } catch (Throwable e) {
+                    flight.result.completeExceptionally(e);
+                    throw e;
+                }
+            }
+            return join(flight.result);
+        } finally {
+            s.releaseKey(key);
+        }
+    }
+
+    /**
+     * Starts loading the value of the key with the asynchronous loader, or joins the load already in flight for an equals key.
+     * The calling thread never waits for the load.
+     *
+     * @return A future completed with the result of the shared load. Completing or cancelling it does not affect the load.
+     */
+    public CompletableFuture<V> loadAsync(KEY_TYPE key, Function<? super KEY_TYPE, ? extends CompletionStage<? extends V>> loader) {
+        ConcurrencySegment<KEY_TYPE, Flight<V>> s = getSegment(key);
+        Flight<V> flight = s.getValue(key);
+        if (flight.start()) {
+            try {
+                loader.apply(key).whenComplete((v, e) -> {
+                    if (e == null) {
+                        flight.result.complete(v);
+                    } else {
+                        flight.result.completeExceptionally(e);
+                    }
+                });
+            } catch (Throwable e) {
+                flight.result.completeExceptionally(e);
+            }
+        }
+
+        CompletableFuture<V> result = new CompletableFuture<>();
+        flight.result.whenComplete((v, e) -> {
+            s.releaseKey(key);
+            if (e == null) {
+                result.complete(v);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrencySegment<KEY_TYPE, Flight<V>> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static <V> V join(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private ConcurrencySegment<KEY_TYPE, Flight<V>> getSegment(KEY_TYPE key) {
+        int segmentIndex = HashUtil.boundedHash(keyHasher.applyAsInt(key), segments.length);
+        return segments[segmentIndex];
+    }
+
+    private static final class Flight<V> {
+
+        final AtomicBoolean started = new AtomicBoolean();
+        final CompletableFuture<V> result = new CompletableFuture<>();
+
+        /**
+         * @return true for the caller which should run the loader.
+         */
+        boolean start() {
+            return !started.get() && started.compareAndSet(false, true);
+        }
+    }
+}
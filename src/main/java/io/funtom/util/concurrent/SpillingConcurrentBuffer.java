@@ -0,0 +1,181 @@
+package io.funtom.util.concurrent;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * An unbounded concurrent buffer which keeps up to a high-water mark of elements in memory, and spills the elements above it to memory mapped segment files on disk,
+ * with the same guarantees as {@link ConcurrentBuffer}. It lets producers keep adding while the consumer is stalled, without running out of memory or dropping elements.
+ * <p>
+ * Once an element is spilled, the following elements are spilled too, until the consumer removes all the spilled elements,
+ * so the elements in memory are always older than the spilled ones, and removals read back the spilled elements transparently, FIFO ordered.
+ * Spilled elements are serialized by the producer, outside of any lock, and appended to the current segment file under a lock shared by the spilling producers.
+ * The consumer deserializes and consumes them outside of that lock, so a slow consumer never holds back the spilling producers.
+ * A segment file is deleted once all its elements are removed.
+ * <p>
+ * The spilled elements do not survive a restart, the segment files are deleted when the buffer is closed.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public final class SpillingConcurrentBuffer<T> implements BatchBuffer<T>, AutoCloseable {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private final ConcurrentBuffer<T> memory = new ConcurrentBuffer<>();
+    private final AtomicInteger inMemory = new AtomicInteger();
+    private final int highWaterMark;
+    private final Serializer<T> serializer;
+    private final MappedSegmentLog disk;
+    private final LongAdder spilled = new LongAdder();
+    private final ConsumerSignal signal = new ConsumerSignal(() -> !isEmpty());
+    private volatile boolean spilling;
+
+    /**
+     * Creates a buffer with segment files of 64MB.
+     *
+     * @param highWaterMark The maximum number of elements kept in memory.
+     * @param serializer    Serializes the spilled elements.
+     * @param directory     The directory of the segment files, created when the first element is spilled.
+     * @throws IllegalArgumentException - If highWaterMark is negative.
+     */
+    public SpillingConcurrentBuffer(int highWaterMark, Serializer<T> serializer, Path directory) {
+        this(highWaterMark, serializer, directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize The size of a segment file in bytes. An element larger than it is spilled to a segment file of its own.
+     * @throws IllegalArgumentException - If highWaterMark is negative, or segmentSize is not larger than 4.
+     */
+    public SpillingConcurrentBuffer(int highWaterMark, Serializer<T> serializer, Path directory, int segmentSize) {
+        if (highWaterMark < 0)
+            throw new IllegalArgumentException(Integer.toString(highWaterMark));
+
+        this.highWaterMark = highWaterMark;
+        this.serializer = Objects.requireNonNull(serializer);
+        this.disk = new MappedSegmentLog(directory, "spill-", segmentSize);
+    }
+
+    /**
+     * @throws java.io.UncheckedIOException - If a segment file could not be created.
+     * @throws IllegalStateException        - If the element should be spilled, and the buffer is closed.
+     */
+    @Override
+    public void add(T e) {
+        if (!spilling) {
+            if (inMemory.incrementAndGet() <= highWaterMark) {
+                memory.add(e);
+                signal.signal();
+                return;
+            }
+            inMemory.decrementAndGet();
+        }
+
+        byte[] bytes = serializer.serialize(e);
+        synchronized (disk) {
+            spilling = true;
+            disk.append(bytes);
+        }
+        spilled.increment();
+        signal.signal();
+    }
+
+    /**
+     * The operation is not guaranteed to be atomic.
+     */
+    @Override
+    public void addAll(Collection<T> elements) {
+        for (T e : elements) {
+            add(e);
+        }
+    }
+
+    @Override
+    public List<T> getAndRemoveAll() {
+        List<T> result = new ArrayList<>();
+        drainTo(result, Integer.MAX_VALUE);
+        return result;
+    }
+
+    @Override
+    public List<T> getAndRemove(int maxElementsToRemove) {
+        List<T> result = new ArrayList<>();
+        drainTo(result, maxElementsToRemove);
+        return result;
+    }
+
+    @Override
+    public synchronized int drainTo(Collection<? super T> target, int maxElementsToRemove) {
+        return drain(maxElementsToRemove, target::add);
+    }
+
+    /**
+     * The elements in memory are removed first, and then the spilled elements are read back.
+     *
+     * @throws java.io.UncheckedIOException - If a fully read segment file could not be deleted.
+     */
+    @Override
+    public synchronized int drain(int maxElementsToRemove, Consumer<? super T> consumer) {
+        int removed = 0;
+        try {
+            removed = memory.drain(maxElementsToRemove, consumer);
+        } finally {
+            inMemory.addAndGet(-removed);
+        }
+
+        if (removed < maxElementsToRemove && spilling) {
+            removed += disk.read(maxElementsToRemove - removed, bytes -> consumer.accept(serializer.deserialize(bytes)));
+            synchronized (disk) {
+                if (disk.isEmpty()) {
+                    spilling = false;
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+        return signal.awaitAndDrainTo(this, target, minElements, maxElements, timeout, unit);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return memory.isEmpty() && (!spilling || disk.isEmpty());
+    }
+
+    /**
+     * A spilling buffer never drops elements.
+     *
+     * @return 0
+     */
+    @Override
+    public long getDroppedCount() {
+        return 0;
+    }
+
+    /**
+     * @return The number of elements spilled to disk, since the buffer was created.
+     */
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    /**
+     * Deletes the segment files. Spilled elements which were not removed are lost.
+     */
+    @Override
+    public void close() {
+        disk.close();
+    }
+
+    int getNumberOfSegments() {
+        return disk.getNumberOfSegments();
+    }
+}
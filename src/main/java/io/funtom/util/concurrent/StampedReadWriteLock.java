@@ -0,0 +1,23 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link StampedLock} that can be used where a {@link ReadWriteLock} is expected, while its optimistic reads are still available.
+ */
+final class StampedReadWriteLock implements ReadWriteLock {
+
+    final StampedLock stampedLock = new StampedLock();
+
+    @Override
+    public Lock readLock() {
+        return stampedLock.asReadLock();
+    }
+
+    @Override
+    public Lock writeLock() {
+        return stampedLock.asWriteLock();
+    }
+}
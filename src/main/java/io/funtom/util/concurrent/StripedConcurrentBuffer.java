@@ -0,0 +1,173 @@
+package io.funtom.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A concurrent buffer split into stripes, so producers running on different threads mostly add to different stripes and do not contend with each other.
+ * The stripe of a producer is selected by the id of its thread, and never changes, so the elements added by a single thread are always removed in the order they were added.
+ * <p>
+ * The order between elements added by different threads is weaker than in {@link ConcurrentBuffer}: a removal merges the stripes one after the other,
+ * so an element may be removed before an element another thread added earlier. Everything else is the same as in {@link ConcurrentBuffer}:
+ * removal operations are synchronized, and a thread that removes elements from the buffer is guaranteed to see the elements added before the removal began.
+ * <p>
+ * Unbounded stripes are {@link ConcurrentBuffer}s, and bounded stripes are {@link RingConcurrentBuffer}s. The capacity and the overflow policy are per stripe,
+ * so a bounded buffer might overflow for one producer thread while it still has free slots in other stripes.
+ *
+ * @param <T> The type of the elements in the Buffer
+ */
+public final class StripedConcurrentBuffer<T> implements BatchBuffer<T> {
+
+    private final BatchBuffer<T>[] stripes;
+    private final int mask;
+    private final ConsumerSignal signal = new ConsumerSignal(() -> !isEmpty());
+    private int nextStripeToRemove;
+
+    /**
+     * Creates an unbounded buffer, with a stripe per available processor.
+     */
+    public StripedConcurrentBuffer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an unbounded buffer.
+     *
+     * @param numberOfStripes Rounded up to a power of two, and limited to 2^16.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedConcurrentBuffer(int numberOfStripes) {
+        int size = HashUtil.ceilingPowerOfTwo(numberOfStripes);
+        this.stripes = new BatchBuffer[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentBuffer<>();
+        }
+    }
+
+    /**
+     * Creates a bounded buffer.
+     *
+     * @param numberOfStripes   Rounded up to a power of two, and limited to 2^16.
+     * @param capacityPerStripe Rounded up to a power of two.
+     * @param overflowPolicy    What to do when an element is added to a full stripe.
+     * @throws IllegalArgumentException - If numberOfStripes or capacityPerStripe is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedConcurrentBuffer(int numberOfStripes, int capacityPerStripe, OverflowPolicy overflowPolicy) {
+        Objects.requireNonNull(overflowPolicy);
+        int size = HashUtil.ceilingPowerOfTwo(numberOfStripes);
+        this.stripes = new BatchBuffer[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new RingConcurrentBuffer<>(capacityPerStripe, overflowPolicy);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException - If the stripe of the calling thread is full, and the overflow policy is {@link OverflowPolicy#FAIL}.
+     */
+    @Override
+    public void add(T e) {
+        currentStripe().add(e);
+        signal.signal();
+    }
+
+    /**
+     * All the elements are added to the stripe of the calling thread.
+     *
+     * @throws IllegalStateException - If the stripe of the calling thread is full, and the overflow policy is {@link OverflowPolicy#FAIL}. Some of the elements might have been added.
+     */
+    @Override
+    public void addAll(Collection<T> elements) {
+        currentStripe().addAll(elements);
+        signal.signal();
+    }
+
+    @Override
+    public List<T> getAndRemoveAll() {
+        List<T> result = new ArrayList<>();
+        drainTo(result, Integer.MAX_VALUE);
+        return result;
+    }
+
+    @Override
+    public List<T> getAndRemove(int maxElementsToRemove) {
+        List<T> result = new ArrayList<>();
+        drainTo(result, maxElementsToRemove);
+        return result;
+    }
+
+    /**
+     * The stripes are drained one after the other. When the number of elements is limited, the first stripe drained rotates between removals,
+     * so a busy stripe does not starve the others.
+     */
+    @Override
+    public synchronized int drainTo(Collection<? super T> target, int maxElementsToRemove) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        int removed = 0;
+        for (int i = 0; i < stripes.length && removed < maxElementsToRemove; i++) {
+            removed += stripes[(nextStripeToRemove + i) & mask].drainTo(target, maxElementsToRemove - removed);
+        }
+        nextStripeToRemove = (nextStripeToRemove + 1) & mask;
+        return removed;
+    }
+
+    @Override
+    public synchronized int drain(int maxElementsToRemove, Consumer<? super T> consumer) {
+
+        if (maxElementsToRemove < 0)
+            throw new IllegalArgumentException(Integer.toString(maxElementsToRemove));
+
+        int removed = 0;
+        for (int i = 0; i < stripes.length && removed < maxElementsToRemove; i++) {
+            removed += stripes[(nextStripeToRemove + i) & mask].drain(maxElementsToRemove - removed, consumer);
+        }
+        nextStripeToRemove = (nextStripeToRemove + 1) & mask;
+        return removed;
+    }
+
+    @Override
+    public int awaitAndDrainTo(Collection<? super T> target, int minElements, int maxElements, long timeout, TimeUnit unit) {
+        return signal.awaitAndDrainTo(this, target, minElements, maxElements, timeout, unit);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (BatchBuffer<T> stripe : stripes) {
+            if (!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (BatchBuffer<T> stripe : stripes) {
+            dropped += stripe.getDroppedCount();
+        }
+        return dropped;
+    }
+
+    /**
+     * @return The number of stripes, after rounding.
+     */
+    public int getNumberOfStripes() {
+        return stripes.length;
+    }
+
+    private BatchBuffer<T> currentStripe() {
+        long id = Thread.currentThread().getId();
+        return stripes[HashUtil.boundedHash(Long.hashCode(id), stripes.length)];
+    }
+}
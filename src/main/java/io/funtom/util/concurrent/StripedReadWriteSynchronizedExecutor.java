@@ -0,0 +1,83 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * An Executor which executes tasks on the caller thread.
+ * The tasks will be executed synchronously on a <b>per-stripe basis</b>.
+ * Every key is mapped to one of a fixed number of stripes, each stripe has its own read-write lock which is allocated once, when the executor is created.
+ * So unlike {@link PerKeyReadWriteSynchronizedExecutor}, executing a task never allocates, no matter how many distinct keys are used.
+ * <p>
+ * For different threads calling the executor with keys mapped to the same stripe,
+ * <p>
+ * Calls to readExecute(...) methods:
+ * <ul><li>Never lock each other</li>
+ * <li>Have the same memory semantics as locking and unlocking the <b>read</b> lock of a java.util.concurrent.lock.{@link ReadWriteLock}</li></ul>
+ * <p>
+ * Calls to writeExecute(...) methods:
+ * <ul><li>Never overlaps with any other calls to execute methods</li>
+ * <li>Have the same memory semantics as locking and unlocking the <b>write</b> lock of a java.util.concurrent.lock.{@link ReadWriteLock}</li></ul>
+ * <p>
+ * Equals keys are always mapped to the same stripe. Keys that are not equals are executed concurrently only if they are mapped to different stripes,
+ * the more stripes the less likely unrelated keys are to block each other.
+ * Calling threads might be suspended.
+ */
+public final class StripedReadWriteSynchronizedExecutor<KEY_TYPE> {
+
+    private final ReadWriteSynchronizedExecutor[] stripes;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+
+    /**
+     * @param numberOfStripes Rounded up to a power of two.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    public StripedReadWriteSynchronizedExecutor(int numberOfStripes) {
+        this(numberOfStripes, Object::hashCode);
+    }
+
+    /**
+     * @param numberOfStripes Rounded up to a power of two.
+     * @param keyHasher       Used instead of the keys hashCode() to map the keys to stripes. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    public StripedReadWriteSynchronizedExecutor(int numberOfStripes, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        int n = HashUtil.ceilingPowerOfTwo(numberOfStripes);
+        this.keyHasher = keyHasher;
+        stripes = new ReadWriteSynchronizedExecutor[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ReadWriteSynchronizedExecutor(new PaddedReadWriteLock());
+        }
+    }
+
+    public void readExecute(KEY_TYPE key, Runnable task) {
+        getStripe(key).readExecute(task);
+    }
+
+    public <R> R readExecute(KEY_TYPE key, Supplier<R> task) {
+        return getStripe(key).readExecute(task);
+    }
+
+    public void writeExecute(KEY_TYPE key, Runnable task) {
+        getStripe(key).writeExecute(task);
+    }
+
+    public <R> R writeExecute(KEY_TYPE key, Supplier<R> task) {
+        return getStripe(key).writeExecute(task);
+    }
+
+    private ReadWriteSynchronizedExecutor getStripe(KEY_TYPE key) {
+        return stripes[HashUtil.boundedHash(keyHasher.applyAsInt(key), stripes.length)];
+    }
+
+    /**
+     * The locks of all the stripes are allocated one after the other.
+     * Padding keeps the lock state of neighbour stripes on different cache lines.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedReadWriteLock extends ReentrantReadWriteLock {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,68 @@
+package io.funtom.util.concurrent;
+
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * An Executor which executes tasks on the caller thread.
+ * The tasks will be executed synchronously on a <b>per-stripe basis</b>.
+ * Every key is mapped to one of a fixed number of stripes, each stripe has its own lock which is allocated once, when the executor is created.
+ * So unlike {@link PerKeySynchronizedExecutor}, executing a task never allocates, no matter how many distinct keys are used.
+ * <p>
+ * When two threads calling the executor with equals keys, the executions will never overlap each other.
+ * Calls with keys that are not equals are executed concurrently only if the keys are mapped to different stripes,
+ * the more stripes the less likely unrelated keys are to block each other.
+ * Calling threads might be suspended.
+ * Calling execute from different threads with equals keys has the same memory semantics as locking and releasing a java.util.concurrent.locks.{@link Lock}.
+ */
+public final class StripedSynchronizedExecutor<KEY_TYPE> {
+
+    private final SynchronizedExecutor[] stripes;
+    private final ToIntFunction<? super KEY_TYPE> keyHasher;
+
+    /**
+     * @param numberOfStripes Rounded up to a power of two.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    public StripedSynchronizedExecutor(int numberOfStripes) {
+        this(numberOfStripes, Object::hashCode);
+    }
+
+    /**
+     * @param numberOfStripes Rounded up to a power of two.
+     * @param keyHasher       Used instead of the keys hashCode() to map the keys to stripes. Must return the same hash for equals keys.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    public StripedSynchronizedExecutor(int numberOfStripes, ToIntFunction<? super KEY_TYPE> keyHasher) {
+        this(numberOfStripes, keyHasher, LockPolicy.REENTRANT);
+    }
+
+    /**
+     * @param numberOfStripes Rounded up to a power of two.
+     * @param keyHasher       Used instead of the keys hashCode() to map the keys to stripes. Must return the same hash for equals keys.
+     * @param policy          The lock of every stripe.
+     * @throws IllegalArgumentException - If numberOfStripes is not positive.
+     */
+    public StripedSynchronizedExecutor(int numberOfStripes, ToIntFunction<? super KEY_TYPE> keyHasher, LockPolicy policy) {
+        int n = HashUtil.ceilingPowerOfTwo(numberOfStripes);
+        this.keyHasher = keyHasher;
+        stripes = new SynchronizedExecutor[n];
+        for (int i = 0; i < n; i++) {
+            // The locks of all the stripes are allocated one after the other
+            stripes[i] = new SynchronizedExecutor(policy.newPaddedLock());
+        }
+    }
+
+    public void execute(KEY_TYPE key, Runnable task) {
+        getStripe(key).execute(task);
+    }
+
+    public <R> R execute(KEY_TYPE key, Supplier<R> task) {
+        return getStripe(key).execute(task);
+    }
+
+    private SynchronizedExecutor getStripe(KEY_TYPE key) {
+        return stripes[HashUtil.boundedHash(keyHasher.applyAsInt(key), stripes.length)];
+    }
+}
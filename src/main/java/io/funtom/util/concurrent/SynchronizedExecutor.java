@@ -1,7 +1,8 @@
 package io.funtom.util.concurrent;
 
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
@@ -9,13 +10,24 @@ import java.util.function.Supplier;
  * The tasks will be executed synchronously, so no overlapping between two tasks running on different threads will ever occur.
  * Calling threads might be suspended.
  * Executing a task has the same memory semantics as locking and releasing a java.util.concurrent.locks.{@link Lock}.
+ * <p>
+ * The tryExecute(...) methods give up if the task could not be started within a timeout, tryExecuteNow(...) give up immediately,
+ * and executeInterruptibly(...) wait for as long as it takes, unless the calling thread is interrupted.
+ * The tasks of all of them are executed synchronously with the tasks of execute(...).
+ * The Supplier variants of the try methods return the result of the task as an Optional, so the task must not return null.
+ * <p>
+ * See {@link LockPolicy} for the available locks.
  */
 public final class SynchronizedExecutor {
 
     private final Lock lock;
 
     public SynchronizedExecutor() {
-        this.lock = new ReentrantLock();
+        this(LockPolicy.REENTRANT);
+    }
+
+    public SynchronizedExecutor(LockPolicy policy) {
+        this(policy.newLock());
     }
 
     SynchronizedExecutor(Lock lock) {
@@ -23,6 +35,60 @@ public final class SynchronizedExecutor {
     }
 
     public void execute(Runnable task) {
+        execute(lock, task);
+    }
+
+    public <R> R execute(Supplier<R> task) {
+        return execute(lock, task);
+    }
+
+    /**
+     * @return true if the task was executed, false if the timeout elapsed before the task could be started.
+     * @throws InterruptedException - If the calling thread is interrupted while waiting.
+     */
+    public boolean tryExecute(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryExecute(lock, task, timeout, unit);
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if the timeout elapsed before the task could be started.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     * @throws InterruptedException - If the calling thread is interrupted while waiting.
+     */
+    public <R> Optional<R> tryExecute(Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryExecute(lock, task, timeout, unit);
+    }
+
+    /**
+     * @return true if the task was executed, false if another task is currently executed.
+     */
+    public boolean tryExecuteNow(Runnable task) {
+        return tryExecuteNow(lock, task);
+    }
+
+    /**
+     * @return The result of the task, or an empty Optional if another task is currently executed.
+     * @throws NullPointerException - If the task returned null, once it was executed. Use the Runnable variant for a task without a result.
+     */
+    public <R> Optional<R> tryExecuteNow(Supplier<R> task) {
+        return tryExecuteNow(lock, task);
+    }
+
+    /**
+     * @throws InterruptedException - If the calling thread is interrupted while waiting, the task is not executed.
+     */
+    public void executeInterruptibly(Runnable task) throws InterruptedException {
+        executeInterruptibly(lock, task);
+    }
+
+    /**
+     * @throws InterruptedException - If the calling thread is interrupted while waiting, the task is not executed.
+     */
+    public <R> R executeInterruptibly(Supplier<R> task) throws InterruptedException {
+        return executeInterruptibly(lock, task);
+    }
+
+    static void execute(Lock lock, Runnable task) {
         lock.lock();
         try {
             task.run();
@@ -31,7 +97,7 @@ public final class SynchronizedExecutor {
         }
     }
 
-    public <R> R execute(Supplier<R> task) {
+    static <R> R execute(Lock lock, Supplier<R> task) {
         lock.lock();
         try {
             return task.get();
@@ -39,4 +105,78 @@ public final class SynchronizedExecutor {
             lock.unlock();
         }
     }
+
+    static boolean tryExecute(Lock lock, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!lock.tryLock(timeout, unit)) {
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static <R> Optional<R> tryExecute(Lock lock, Supplier<R> task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!lock.tryLock(timeout, unit)) {
+            return Optional.empty();
+        }
+        try {
+            return result(task.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static boolean tryExecuteNow(Lock lock, Runnable task) {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static <R> Optional<R> tryExecuteNow(Lock lock, Supplier<R> task) {
+        if (!lock.tryLock()) {
+            return Optional.empty();
+        }
+        try {
+            return result(task.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A null result would be indistinguishable from a task which was not executed.
+     */
+    static <R> Optional<R> result(R result) {
+        if (result == null)
+            throw new NullPointerException("The task returned null, use the Runnable variant for a task without a result");
+
+        return Optional.of(result);
+    }
+
+    static void executeInterruptibly(Lock lock, Runnable task) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            task.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static <R> R executeInterruptibly(Lock lock, Supplier<R> task) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            return task.get();
+        } finally {
+            lock.unlock();
+        }
+    }
 }
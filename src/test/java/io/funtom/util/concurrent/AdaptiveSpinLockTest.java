@@ -0,0 +1,111 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveSpinLockTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void reentrant() {
+        AdaptiveSpinLock underTest = new AdaptiveSpinLock();
+        underTest.lock();
+        underTest.lock();
+        assertEquals(2, underTest.getHoldCount());
+        underTest.unlock();
+        underTest.unlock();
+        assertFalse(underTest.isLocked());
+    }
+
+    @Test
+    public void spinsForShortHoldsOnly() {
+        AdaptiveSpinLock underTest = new AdaptiveSpinLock();
+        assertEquals(0, underTest.spinNanos());
+        for (int i = 0; i < 1000; i++) {
+            underTest.lock();
+            underTest.unlock();
+        }
+        assertTrue(underTest.spinNanos() > 0);
+
+        for (int i = 0; i < 1000; i++) {
+            underTest.lock();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            underTest.unlock();
+        }
+        assertEquals(0, underTest.spinNanos());
+    }
+
+    @Test
+    public void tryLockGivesUpWhenHeld() throws Exception {
+        AdaptiveSpinLock underTest = new AdaptiveSpinLock();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(() -> {
+            underTest.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                underTest.unlock();
+            }
+        });
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        assertFalse(underTest.tryLock());
+        assertFalse(underTest.tryLock(10, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(underTest.tryLock(10, TimeUnit.SECONDS));
+        underTest.unlock();
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void lockInterruptiblyWhenInterrupted() throws InterruptedException {
+        Thread.currentThread().interrupt();
+        new AdaptiveSpinLock().lockInterruptibly();
+    }
+
+    @Test
+    public void executorsWithAdaptiveSpinLocksExcludeEachOther() throws Exception {
+        SynchronizedExecutor executor = new SynchronizedExecutor(LockPolicy.ADAPTIVE_SPIN);
+        PerKeySynchronizedExecutor<Integer> perKeyExecutor = new PerKeySynchronizedExecutor<>(4, Object::hashCode, LockPolicy.ADAPTIVE_SPIN);
+        StripedSynchronizedExecutor<Integer> stripedExecutor = new StripedSynchronizedExecutor<>(4, Object::hashCode, LockPolicy.ADAPTIVE_SPIN);
+        final int THREADS = 4;
+        final int EXECUTIONS_PER_THREAD = 20000;
+        long[] counters = new long[3];
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < EXECUTIONS_PER_THREAD; i++) {
+                    executor.execute(() -> counters[0]++);
+                    perKeyExecutor.execute(1, () -> counters[1]++);
+                    stripedExecutor.execute(1, () -> counters[2]++);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertArrayEquals(new long[]{THREADS * EXECUTIONS_PER_THREAD, THREADS * EXECUTIONS_PER_THREAD, THREADS * EXECUTIONS_PER_THREAD}, counters);
+    }
+}
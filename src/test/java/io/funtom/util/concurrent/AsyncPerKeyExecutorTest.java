@@ -0,0 +1,144 @@
+package io.funtom.util.concurrent;
+
+import io.funtom.util.concurrent.helper.MutableClass;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncPerKeyExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void submitSimpleSupplier() throws Exception {
+        AsyncPerKeyExecutor<Integer> underTest = new AsyncPerKeyExecutor<>(pool);
+        assertEquals("result", underTest.submit(1, () -> "result").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tasksForSameKeyRunSeriallyInSubmissionOrder() throws Exception {
+        AsyncPerKeyExecutor<String> underTest = new AsyncPerKeyExecutor<>(pool);
+        final int N = 10000;
+        final List<Integer> actual = new ArrayList<>();
+        final MutableClass mutable = new MutableClass();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            final int n = i;
+            futures.add(underTest.submit("KEY", () -> {
+                mutable.assertConsistency();
+                mutable.executeNonAtomicMutation();
+                actual.add(n);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        mutable.assertNumberOfMutations(N);
+        for (int i = 0; i < N; i++) {
+            assertEquals(Integer.valueOf(i), actual.get(i));
+        }
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void tasksForDifferentKeysRunConcurrently() throws Exception {
+        AsyncPerKeyExecutor<String> underTest = new AsyncPerKeyExecutor<>(pool);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        Supplier<Boolean> waitForOther = () -> {
+            bothRunning.countDown();
+            try {
+                return bothRunning.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        CompletableFuture<Boolean> f1 = underTest.submit("KEY1", waitForOther);
+        CompletableFuture<Boolean> f2 = underTest.submit("KEY2", waitForOther);
+        assertTrue(f1.get(20, TimeUnit.SECONDS));
+        assertTrue(f2.get(20, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedTaskDoesNotBreakTheChain() throws Exception {
+        AsyncPerKeyExecutor<String> underTest = new AsyncPerKeyExecutor<>(pool);
+        CompletableFuture<Object> failed = underTest.submit("KEY", (Supplier<Object>) () -> {
+            throw new IllegalStateException("failure");
+        });
+        CompletableFuture<String> next = underTest.submit("KEY", () -> "next");
+
+        assertEquals("next", next.get(10, TimeUnit.SECONDS));
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void rejectedTaskFailsItsFuture() throws Exception {
+        AsyncPerKeyExecutor<String> underTest = new AsyncPerKeyExecutor<>(task -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            underTest.submit("KEY", () -> "never").get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void executorFailureFailsItsFutureAndNotTheNextTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        int[] calls = new int[1];
+        AsyncPerKeyExecutor<String> underTest = new AsyncPerKeyExecutor<>(task -> {
+            synchronized (calls) {
+                if (++calls[0] == 2) {
+                    throw new IllegalStateException("executor failure");
+                }
+            }
+            pool.execute(task);
+        });
+
+        CompletableFuture<String> first = underTest.submit("KEY", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "first";
+        });
+        // Dispatched when the first task completes
+        CompletableFuture<String> second = underTest.submit("KEY", () -> "never");
+        CompletableFuture<String> third = underTest.submit("KEY", () -> "third");
+        release.countDown();
+
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        try {
+            second.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            assertEquals("executor failure", e.getCause().getMessage());
+        }
+        assertEquals("third", third.get(10, TimeUnit.SECONDS));
+        assertEquals(0, underTest.size());
+    }
+}
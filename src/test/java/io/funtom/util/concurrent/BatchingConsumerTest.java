@@ -0,0 +1,108 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingConsumerTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void flushesFullBatchesWithoutWaitingForTheLingerTime() throws Exception {
+        ConcurrentBuffer<Integer> buffer = new ConcurrentBuffer<>();
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        try (BatchingConsumer<Integer> ignored = new BatchingConsumer<>(buffer, 3, 1, TimeUnit.HOURS, batches::add, pool)) {
+            buffer.addAll(Arrays.asList(1, 2, 3, 4, 5, 6));
+            assertEquals(Arrays.asList(1, 2, 3), batches.poll(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(4, 5, 6), batches.poll(10, TimeUnit.SECONDS));
+            buffer.add(7);
+        }
+        assertEquals(Collections.singletonList(7), batches.poll());
+    }
+
+    @Test
+    public void flushesPartialBatchesAfterTheLingerTime() throws Exception {
+        RingConcurrentBuffer<Integer> buffer = new RingConcurrentBuffer<>(16);
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        try (BatchingConsumer<Integer> ignored = new BatchingConsumer<>(buffer, 100, 20, TimeUnit.MILLISECONDS, batches::add, pool)) {
+            buffer.add(1);
+            assertEquals(Collections.singletonList(1), batches.poll(10, TimeUnit.SECONDS));
+            buffer.add(2);
+            assertEquals(Collections.singletonList(2), batches.poll(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void idleConsumerWithoutLingerTimeParks() throws Exception {
+        ConcurrentBuffer<Integer> buffer = new ConcurrentBuffer<>();
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        Thread[] consumer = new Thread[1];
+        Executor recordingExecutor = task -> pool.execute(() -> {
+            consumer[0] = Thread.currentThread();
+            task.run();
+        });
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (BatchingConsumer<Integer> ignored = new BatchingConsumer<>(buffer, 100, 0, TimeUnit.NANOSECONDS, batches::add, recordingExecutor)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (consumer[0] == null || !isParked(consumer[0])) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+
+            long cpuTime = threads.getThreadCpuTime(consumer[0].getId());
+            Thread.sleep(200);
+            assertTrue(isParked(consumer[0]));
+            assertTrue(threads.getThreadCpuTime(consumer[0].getId()) - cpuTime < TimeUnit.MILLISECONDS.toNanos(50));
+
+            buffer.add(1);
+            assertEquals(Collections.singletonList(1), batches.poll(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void failingHandlerDoesNotStopTheConsumer() throws Exception {
+        ConcurrentBuffer<Integer> buffer = new ConcurrentBuffer<>();
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        ExecutorService quietPool = Executors.newSingleThreadExecutor(task -> {
+            Thread t = new Thread(task);
+            t.setUncaughtExceptionHandler((thread, e) -> {
+            });
+            return t;
+        });
+        try (BatchingConsumer<Integer> ignored = new BatchingConsumer<>(buffer, 1, 1, TimeUnit.SECONDS, batch -> {
+            handled.addAll(batch);
+            done.countDown();
+            throw new IllegalStateException("failure");
+        }, quietPool)) {
+            buffer.add(1);
+            buffer.add(2);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            quietPool.shutdownNow();
+        }
+        assertEquals(Arrays.asList(1, 2), handled);
+    }
+
+    private static boolean isParked(Thread thread) {
+        Thread.State state = thread.getState();
+        return state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING;
+    }
+}
@@ -0,0 +1,87 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CompactLockTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void notReentrant() {
+        CompactLock underTest = new CompactLock();
+        assertTrue(underTest.tryLock());
+        assertFalse(underTest.tryLock());
+        underTest.unlock();
+        assertTrue(underTest.tryLock());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockByAnotherThread() throws Exception {
+        CompactLock underTest = new CompactLock();
+        pool.submit(underTest::lock).get(10, TimeUnit.SECONDS);
+        underTest.unlock();
+    }
+
+    @Test
+    public void waitersAreWokenUp() throws Exception {
+        CompactLock underTest = new CompactLock();
+        underTest.lock();
+        CountDownLatch acquired = new CountDownLatch(2);
+        Future<Boolean> timedOut = pool.submit(() -> underTest.tryLock(10, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 2; i++) {
+            pool.execute(() -> {
+                underTest.lock();
+                acquired.countDown();
+                underTest.unlock();
+            });
+        }
+        assertFalse(timedOut.get(10, TimeUnit.SECONDS));
+        underTest.unlock();
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executorsWithCompactLocksExcludeEachOther() throws Exception {
+        SynchronizedExecutor executor = new SynchronizedExecutor(LockPolicy.COMPACT);
+        PerKeySynchronizedExecutor<Integer> perKeyExecutor = new PerKeySynchronizedExecutor<>(4, Object::hashCode, LockPolicy.COMPACT);
+        StripedSynchronizedExecutor<Integer> stripedExecutor = new StripedSynchronizedExecutor<>(4, Object::hashCode, LockPolicy.COMPACT);
+        final int THREADS = 4;
+        final int EXECUTIONS_PER_THREAD = 20000;
+        long[] counters = new long[4];
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < EXECUTIONS_PER_THREAD; i++) {
+                    executor.execute(() -> counters[0]++);
+                    perKeyExecutor.execute(1, () -> counters[1]++);
+                    stripedExecutor.execute(1, () -> counters[2]++);
+                    perKeyExecutor.execute(Arrays.asList(1, 2), () -> counters[3]++);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        long expected = THREADS * EXECUTIONS_PER_THREAD;
+        assertArrayEquals(new long[]{expected, expected, expected, expected}, counters);
+    }
+}
@@ -0,0 +1,70 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CompactReadWriteLockTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void readersShareAndWritersExclude() {
+        CompactReadWriteLock underTest = new CompactReadWriteLock();
+        assertTrue(underTest.readLock().tryLock());
+        assertTrue(underTest.readLock().tryLock());
+        assertFalse(underTest.writeLock().tryLock());
+        underTest.readLock().unlock();
+        underTest.readLock().unlock();
+
+        assertTrue(underTest.writeLock().tryLock());
+        assertFalse(underTest.readLock().tryLock());
+        assertFalse(underTest.writeLock().tryLock());
+        underTest.writeLock().unlock();
+        assertTrue(underTest.readLock().tryLock());
+    }
+
+    @Test
+    public void viewsAreCreatedOnce() {
+        CompactReadWriteLock underTest = new CompactReadWriteLock();
+        assertSame(underTest.readLock(), underTest.readLock());
+        assertSame(underTest.writeLock(), underTest.writeLock());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void readUnlockWithoutLock() {
+        new CompactReadWriteLock().readLock().unlock();
+    }
+
+    @Test
+    public void waitingWriterHoldsBackNewReaders() throws Exception {
+        CompactReadWriteLock underTest = new CompactReadWriteLock();
+        underTest.readLock().lock();
+        Future<?> writer = pool.submit(() -> {
+            underTest.writeLock().lock();
+            underTest.writeLock().unlock();
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!underTest.hasQueuedThreads()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+
+        Future<Boolean> reader = pool.submit(() -> underTest.readLock().tryLock(20, TimeUnit.MILLISECONDS));
+        assertFalse(reader.get(10, TimeUnit.SECONDS));
+        underTest.readLock().unlock();
+        writer.get(10, TimeUnit.SECONDS);
+        assertTrue(underTest.readLock().tryLock(10, TimeUnit.SECONDS));
+    }
+}
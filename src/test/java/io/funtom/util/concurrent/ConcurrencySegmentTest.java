@@ -0,0 +1,91 @@
+package io.funtom.util.concurrent;
+
+import io.funtom.util.concurrent.helper.MutableClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ConcurrencySegmentTest {
+
+    @Test
+    public void valueIsSharedWhileKeyIsInUse() {
+        ConcurrencySegment<String, Object> underTest = new ConcurrencySegment<>(Object::new);
+        Object first = underTest.getValue("KEY");
+        Object second = underTest.getValue("KEY");
+        assertSame(first, second);
+        assertEquals(1, underTest.size());
+
+        underTest.releaseKey("KEY");
+        assertSame(first, underTest.getValue("KEY"));
+        underTest.releaseKey("KEY");
+        underTest.releaseKey("KEY");
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void idleKeyGetsNewValue() {
+        ConcurrencySegment<String, Object> underTest = new ConcurrencySegment<>(Object::new);
+        Object first = underTest.getValue("KEY");
+        underTest.releaseKey("KEY");
+        Object second = underTest.getValue("KEY");
+        underTest.releaseKey("KEY");
+        assertNotSame(first, second);
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void stressAcquireAndRelease() throws InterruptedException, ExecutionException {
+        final int numberOfKeys = 4;
+        final int numberOfThreads = 16;
+        final int iterations = 20000;
+
+        final ConcurrencySegment<Integer, ReentrantLock> underTest = new ConcurrencySegment<>(ReentrantLock::new);
+        final MutableClass[] mutableInstances = new MutableClass[numberOfKeys];
+        for (int i = 0; i < numberOfKeys; i++) {
+            mutableInstances[i] = new MutableClass();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads);
+        CyclicBarrier start = new CyclicBarrier(numberOfThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int key = t % numberOfKeys;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    // Concurrent users of a key must get the same lock, otherwise the mutations overlap
+                    ReentrantLock lock = underTest.getValue(key);
+                    lock.lock();
+                    try {
+                        mutableInstances[key].assertConsistency();
+                        mutableInstances[key].executeNonAtomicMutation();
+                        mutableInstances[key].assertConsistency();
+                    } finally {
+                        lock.unlock();
+                        underTest.releaseKey(key);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (MutableClass instance : mutableInstances) {
+            instance.assertNumberOfMutations(numberOfThreads / numberOfKeys * iterations);
+        }
+        assertEquals(0, underTest.size());
+    }
+}
@@ -46,13 +46,157 @@ public class ConcurrentBufferTest {
         Assert.assertThat(underTest.getAndRemoveAll(), Matchers.equalTo(Arrays.asList(4, 5)));
     }
 
+    @Test
+    public void drainToReusedList() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(4, OverflowPolicy.FAIL);
+        List<Integer> batch = new ArrayList<>();
+        underTest.addAll(Arrays.asList(1, 2, 3, 4));
+        Assert.assertEquals(3, underTest.drainTo(batch, 3));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), batch);
+
+        batch.clear();
+        underTest.addAll(Arrays.asList(5, 6, 7));
+        Assert.assertEquals(4, underTest.drainTo(batch));
+        Assert.assertEquals(Arrays.asList(4, 5, 6, 7), batch);
+        Assert.assertEquals(0, underTest.drainTo(batch));
+    }
+
+    @Test
+    public void drainToConsumer() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>();
+        List<Integer> consumed = new ArrayList<>();
+        underTest.addAll(Arrays.asList(1, 2, 3));
+        Assert.assertEquals(2, underTest.drain(2, consumed::add));
+        Assert.assertEquals(1, underTest.drainTo((Integer e) -> consumed.add(e)));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), consumed);
+    }
+
+    @Test
+    public void awaitAndRemoveReturnsAsSoonAsTheBatchFills() throws Exception {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.execute(() -> {
+                for (int i = 0; i < 5; i++) {
+                    underTest.add(i);
+                }
+            });
+            long start = System.nanoTime();
+            List<Integer> batch = underTest.awaitAndRemove(5, 5, 30, TimeUnit.SECONDS);
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), batch);
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void awaitAndRemoveReturnsWhatItHasWhenTheTimeoutElapses() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>();
+        underTest.addAll(Arrays.asList(1, 2, 3));
+        Assert.assertEquals(Arrays.asList(1, 2), underTest.awaitAndRemove(1, 2, 1, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList(3), underTest.awaitAndRemove(2, 2, 50, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(Collections.emptyList(), underTest.awaitAndRemove(1, 1, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void failingConsumerLeavesTheRestInTheBuffer() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(3, OverflowPolicy.FAIL);
+        underTest.addAll(Arrays.asList(1, 2, 3));
+        try {
+            underTest.drainTo((Integer e) -> {
+                if (e == 2) throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        underTest.add(4);
+        Assert.assertEquals(Arrays.asList(3, 4), underTest.getAndRemoveAll());
+    }
+
     @Test
     public void stressTheBuffer() throws InterruptedException, ExecutionException, BrokenBarrierException {
-        try (BufferStressTester stress = new BufferStressTester(5, 30)) {
+        try (BufferStressTester stress = new BufferStressTester(new ConcurrentBuffer<>(), 5, 30)) {
             stress.test();
         }
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void boundedBufferFailsWhenFull() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(2, OverflowPolicy.FAIL);
+        underTest.addAll(Arrays.asList(1, 2));
+        underTest.add(3);
+    }
+
+    @Test
+    public void boundedBufferDropsNewest() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(2, OverflowPolicy.DROP_NEWEST);
+        underTest.addAll(Arrays.asList(1, 2, 3, 4));
+        Assert.assertEquals(2, underTest.getDroppedCount());
+        assertBufferContains(underTest, 1, 2);
+        underTest.add(5);
+        assertBufferContains(underTest, 5);
+    }
+
+    @Test
+    public void boundedBufferDropsOldest() {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(2, OverflowPolicy.DROP_OLDEST);
+        underTest.addAll(Arrays.asList(1, 2, 3, 4));
+        Assert.assertEquals(2, underTest.getDroppedCount());
+        Assert.assertThat(underTest.getAndRemove(1), Matchers.equalTo(Collections.singletonList(3)));
+        underTest.add(5);
+        assertBufferContains(underTest, 4, 5);
+    }
+
+    @Test
+    public void boundedBufferBlocksUntilElementsAreRemoved() throws Exception {
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(1, OverflowPolicy.BLOCK);
+        underTest.add(1);
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> underTest.add(2));
+        Thread.sleep(50);
+        Assert.assertFalse(blocked.isDone());
+
+        assertBufferContains(underTest, 1);
+        blocked.get(10, TimeUnit.SECONDS);
+        assertBufferContains(underTest, 2);
+        Assert.assertEquals(0, underTest.getDroppedCount());
+    }
+
+    @Test
+    public void stressTheBoundedBuffer() throws Exception {
+        final int writers = 20;
+        final int writesPerWriter = 5000;
+        ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>(100, OverflowPolicy.BLOCK);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final int elementToWrite = i;
+            pool.execute(() -> {
+                for (int j = 0; j < writesPerWriter; j++) {
+                    underTest.add(elementToWrite);
+                }
+            });
+        }
+
+        int[] occurrences = new int[writers];
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        for (int read = 0; read < writers * writesPerWriter && System.currentTimeMillis() < deadline; ) {
+            List<Integer> batch = underTest.getAndRemoveAll();
+            Assert.assertTrue(batch.size() <= 100);
+            for (Integer e : batch) {
+                occurrences[e]++;
+            }
+            read += batch.size();
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int count : occurrences) {
+            Assert.assertEquals(writesPerWriter, count);
+        }
+        Assert.assertEquals(Collections.emptyList(), underTest.getAndRemoveAll());
+    }
+
     private void assertBufferContains(ConcurrentBuffer<Integer> underTest, Integer... ints) {
         assertBufferContains(underTest, Arrays.asList(ints));
     }
@@ -63,7 +207,7 @@ public class ConcurrentBufferTest {
 
     private class BufferStressTester implements AutoCloseable {
 
-        final ConcurrentBuffer<Integer> underTest = new ConcurrentBuffer<>();
+        final ConcurrentBuffer<Integer> underTest;
         final List<Integer> actualReadFromBuffer = new ArrayList<>();
 
         final int writesPerWriter = 5000;
@@ -73,7 +217,8 @@ public class ConcurrentBufferTest {
         final ExecutorService pool;
         final CyclicBarrier startStopTaskBarrier;
 
-        BufferStressTester(int readers, int writers) {
+        BufferStressTester(ConcurrentBuffer<Integer> underTest, int readers, int writers) {
+            this.underTest = underTest;
             this.numberOfReaders = readers;
             this.numberOfWriters = writers;
             this.startStopTaskBarrier = new CyclicBarrier(readers + writers);
@@ -0,0 +1,169 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class ContentionMetricsTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void countsAcquisitionsAndHoldTime() {
+        ContentionMetrics<Integer> metrics = new ContentionMetrics<>();
+        PerKeySynchronizedExecutor<Integer> underTest = new PerKeySynchronizedExecutor<>(4, Object::hashCode, metrics);
+
+        for (int i = 0; i < 100; i++) {
+            underTest.execute(i % 3, () -> {
+            });
+        }
+        assertEquals(Integer.valueOf(7), underTest.execute(1, () -> 7));
+
+        ContentionMetrics.Snapshot<Integer> snapshot = metrics.snapshot();
+        assertEquals(101, snapshot.getAcquisitions());
+        assertEquals(0, snapshot.getContendedAcquisitions());
+        assertEquals(101, LongStream.of(snapshot.getWaitTimeHistogram()).sum());
+        assertEquals(101, LongStream.of(snapshot.getHoldTimeHistogram()).sum());
+        assertEquals(4, snapshot.getSegmentSizes().length);
+        assertEquals(0, snapshot.getLiveKeys());
+    }
+
+    @Test
+    public void countsContendedAcquisitionsAndWaitTime() throws Exception {
+        ContentionMetrics<String> metrics = new ContentionMetrics<>();
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>(4, Object::hashCode, metrics);
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> underTest.execute("KEY", () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(1, metrics.snapshot().getLiveKeys());
+
+        Thread waiter = new Thread(() -> underTest.execute("KEY", () -> {
+        }));
+        waiter.start();
+        // Parked only once queued on the lock of the key
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waiter.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        release.countDown();
+        waiter.join(10000);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        ContentionMetrics.Snapshot<String> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getAcquisitions());
+        assertEquals(1, snapshot.getContendedAcquisitions());
+        assertTrue(snapshot.getWaitTimePercentile(100) > 0);
+        assertTrue(snapshot.getHoldTimePercentile(100) > 0);
+    }
+
+    @Test
+    public void reportsHotKeys() {
+        ContentionMetrics<String> metrics = new ContentionMetrics<>(1, 2);
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>(4, Object::hashCode, metrics);
+        for (int i = 0; i < 30; i++) {
+            underTest.execute("HOT", () -> {
+            });
+        }
+        for (int i = 0; i < 20; i++) {
+            underTest.execute("WARM", () -> {
+            });
+        }
+        for (int i = 0; i < 100; i++) {
+            underTest.execute("COLD-" + i, () -> {
+            });
+        }
+
+        List<Map.Entry<String, Long>> hotKeys = metrics.snapshot().getHotKeys();
+        assertEquals(2, hotKeys.size());
+        assertEquals("HOT", hotKeys.get(0).getKey());
+        assertEquals(Long.valueOf(30), hotKeys.get(0).getValue());
+        assertEquals("WARM", hotKeys.get(1).getKey());
+    }
+
+    @Test
+    public void frequentKeyAmongManyRareKeysIsReported() {
+        // Tracks 8 keys, so a key of more than 1/8 of the acquisitions is never replaced
+        ContentionMetrics<String> metrics = new ContentionMetrics<>(1, 1);
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>(4, Object::hashCode, metrics);
+        for (int i = 0; i < 50; i++) {
+            underTest.execute("FREQUENT", () -> {
+            });
+            underTest.execute("RARE-" + i, () -> {
+            });
+        }
+
+        ContentionMetrics.Snapshot<String> snapshot = metrics.snapshot();
+        Map.Entry<String, Long> hottest = snapshot.getHotKeys().get(0);
+        assertEquals("FREQUENT", hottest.getKey());
+        long error = snapshot.getHotKeyErrors().get("FREQUENT");
+        assertTrue(hottest.getValue() >= 50);
+        assertTrue(hottest.getValue() - error <= 50);
+    }
+
+    @Test
+    public void exposedAsMXBean() throws Exception {
+        ContentionMetrics<String> metrics = new ContentionMetrics<>(1, 10);
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>(2, Object::hashCode, metrics);
+        underTest.execute("KEY", () -> {
+        });
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("io.funtom.util.concurrent:type=ContentionMetrics,name=test");
+        server.registerMBean(metrics, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "Acquisitions"));
+            assertEquals(0L, server.getAttribute(name, "ContendedAcquisitions"));
+            assertArrayEquals(new int[]{0, 0}, (int[]) server.getAttribute(name, "SegmentSizes"));
+            TabularData hotKeys = (TabularData) server.getAttribute(name, "HotKeys");
+            assertEquals(1, hotKeys.size());
+            assertEquals(1, ((TabularData) server.getAttribute(name, "HotKeyErrors")).size());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void metricsUsedBySingleExecutor() {
+        ContentionMetrics<String> metrics = new ContentionMetrics<>();
+        new PerKeySynchronizedExecutor<>(2, Object::hashCode, metrics);
+        new PerKeySynchronizedExecutor<>(2, Object::hashCode, metrics);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSampleRate() {
+        new ContentionMetrics<String>(0, 10);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.funtom.util.concurrent.SpillingConcurrentBufferTest.INTEGER_SERIALIZER;
+import static org.junit.Assert.assertEquals;
+
+public class DurableConcurrentBufferTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void unacknowledgedElementsAreReplayed() {
+        Path directory = folder.getRoot().toPath();
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            underTest.addAll(Arrays.asList(1, 2, 3, 4));
+            assertEquals(Arrays.asList(1, 2), underTest.getAndRemove(2));
+            underTest.acknowledge();
+            assertEquals(Collections.singletonList(3), underTest.getAndRemove(1));
+        }
+
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            assertEquals(Arrays.asList(3, 4), underTest.getAndRemoveAll());
+            underTest.add(5);
+            underTest.acknowledge();
+        }
+
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            assertEquals(Collections.singletonList(5), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void acknowledgedSegmentsAreDeleted() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER, 64, 10)) {
+            for (int i = 0; i < 100; i++) {
+                underTest.add(i);
+            }
+            Assert.assertTrue(underTest.getNumberOfSegments() > 10);
+            assertEquals(100, underTest.getAndRemoveAll().size());
+            underTest.acknowledge();
+            assertEquals(1, underTest.getNumberOfSegments());
+            assertEquals(1, segmentFiles(directory).size());
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnoredOnReplay() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            underTest.addAll(Arrays.asList(1, 2, 3));
+        }
+
+        // Cut the last record in the middle, like a crash while writing it
+        Path segment = segmentFiles(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            assertEquals(Arrays.asList(1, 2), underTest.getAndRemoveAll());
+            underTest.add(4);
+        }
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            assertEquals(Arrays.asList(1, 2, 4), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void zeroFilledTailIsIgnoredOnReplay() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            underTest.addAll(Arrays.asList(1, 2));
+        }
+
+        // Extend the file with zeros, like a crash after the file grew but before its contents were written
+        Path segment = segmentFiles(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(64));
+        }
+
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            assertEquals(Arrays.asList(1, 2), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void periodicSync() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(folder.getRoot().toPath(), INTEGER_SERIALIZER, 1000, 10, TimeUnit.MILLISECONDS, scheduler)) {
+            underTest.add(1);
+            assertEquals(Collections.singletonList(1), underTest.awaitAndRemove(1, 1, 10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentProducersShareTheirSyncs() throws Exception {
+        final int writers = 8;
+        final int writesPerWriter = 200;
+        Path directory = folder.getRoot().toPath();
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                final int writer = i;
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < writesPerWriter; j++) {
+                        underTest.add(writer * writesPerWriter + j);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (DurableConcurrentBuffer<Integer> underTest = new DurableConcurrentBuffer<>(directory, INTEGER_SERIALIZER)) {
+            // Elements of each writer must be replayed in the order they were added
+            int[] expectedNext = new int[writers];
+            for (int e : underTest.getAndRemoveAll()) {
+                assertEquals(expectedNext[e / writesPerWriter]++, e % writesPerWriter);
+            }
+            for (int next : expectedNext) {
+                assertEquals(writesPerWriter, next);
+            }
+        }
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+}
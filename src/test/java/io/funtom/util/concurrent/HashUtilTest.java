@@ -0,0 +1,33 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashUtilTest {
+
+    @Test
+    public void ceilingPowerOfTwo() {
+        assertEquals(1, HashUtil.ceilingPowerOfTwo(1));
+        assertEquals(2, HashUtil.ceilingPowerOfTwo(2));
+        assertEquals(4, HashUtil.ceilingPowerOfTwo(3));
+        assertEquals(32, HashUtil.ceilingPowerOfTwo(32));
+        assertEquals(128, HashUtil.ceilingPowerOfTwo(96));
+        assertEquals(HashUtil.MAX_BOUND, HashUtil.ceilingPowerOfTwo(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ceilingPowerOfTwoOfZero() {
+        HashUtil.ceilingPowerOfTwo(0);
+    }
+
+    @Test
+    public void boundedHashIsWithinBounds() {
+        for (int h = -100000; h < 100000; h += 7) {
+            int bounded = HashUtil.boundedHash(h, 64);
+            assertTrue(bounded >= 0 && bounded < 64);
+        }
+        assertEquals(0, HashUtil.boundedHash(Integer.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,133 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IntConcurrentBufferTest {
+
+    @Test
+    public void bufferKeepsWorkingAcrossSegments() {
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(4);
+        for (int round = 0; round < 10; round++) {
+            underTest.addAll(1, 2, 3);
+            assertArrayEquals(new int[]{1}, underTest.getAndRemove(1));
+            underTest.addAll(4, 5, 6, 7, 8, 9, 10);
+            assertArrayEquals(new int[]{2, 3, 4, 5, 6, 7, 8, 9, 10}, underTest.getAndRemoveAll());
+            assertArrayEquals(new int[0], underTest.getAndRemoveAll());
+            Assert.assertTrue(underTest.isEmpty());
+        }
+        assertArrayEquals(new int[0], underTest.getAndRemove(0));
+    }
+
+    @Test
+    public void segmentsLargerThanABitmapWord() {
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(100);
+        for (int i = 0; i < 250; i++) {
+            underTest.add(i);
+        }
+        int[] batch = new int[70];
+        for (int start = 0; start < 250; start += 70) {
+            int removed = underTest.drainTo(batch);
+            assertEquals(Math.min(70, 250 - start), removed);
+            for (int k = 0; k < removed; k++) {
+                assertEquals(start + k, batch[k]);
+            }
+        }
+        Assert.assertTrue(underTest.isEmpty());
+    }
+
+    @Test
+    public void drainToReusedArray() {
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(2);
+        int[] batch = new int[3];
+        underTest.addAll(1, 2, 3, 4, 5);
+        assertEquals(3, underTest.drainTo(batch));
+        assertArrayEquals(new int[]{1, 2, 3}, batch);
+        assertEquals(2, underTest.drainTo(batch, 1, 2));
+        assertArrayEquals(new int[]{1, 4, 5}, batch);
+        assertEquals(0, underTest.drainTo(batch));
+    }
+
+    @Test
+    public void drainToConsumer() {
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(2);
+        List<Integer> consumed = new ArrayList<>();
+        underTest.addAll(1, 2, 3);
+        assertEquals(2, underTest.drain(2, consumed::add));
+        assertEquals(1, underTest.drainTo(consumed::add));
+        assertEquals(3, consumed.size());
+        assertEquals(Integer.valueOf(3), consumed.get(2));
+    }
+
+    @Test
+    public void failingConsumerKeepsTheRest() {
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(2);
+        underTest.addAll(1, 2, 3);
+        List<Integer> consumed = new ArrayList<>();
+        try {
+            underTest.drainTo(e -> {
+                consumed.add(e);
+                if (e == 2) {
+                    throw new IllegalStateException();
+                }
+            });
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertArrayEquals(new int[]{3}, underTest.getAndRemoveAll());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void drainToOutOfBounds() {
+        new IntConcurrentBuffer().drainTo(new int[2], 1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSegmentSize() {
+        new IntConcurrentBuffer(0);
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 16;
+        final int writesPerWriter = 20000;
+        IntConcurrentBuffer underTest = new IntConcurrentBuffer(64);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final int writer = i;
+            pool.execute(() -> {
+                for (int j = 0; j < writesPerWriter; j++) {
+                    underTest.add(writer << 16 | j);
+                }
+            });
+        }
+
+        // Elements of each writer must be removed in the order they were added
+        int[] expectedNext = new int[writers];
+        int[] batch = new int[100];
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        for (int read = 0; read < writers * writesPerWriter && System.currentTimeMillis() < deadline; ) {
+            int removed = underTest.drainTo(batch);
+            for (int k = 0; k < removed; k++) {
+                assertEquals(expectedNext[batch[k] >>> 16]++, batch[k] & 0xFFFF);
+            }
+            read += removed;
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int next : expectedNext) {
+            assertEquals(writesPerWriter, next);
+        }
+        Assert.assertTrue(underTest.isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    @Test
+    public void buckets() {
+        assertEquals(0, LatencyHistogram.bucketOf(-1));
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(31, LatencyHistogram.bucketOf(31));
+        assertEquals(63, LatencyHistogram.bucketOf(63));
+        assertEquals(64, LatencyHistogram.bucketOf(64));
+        assertEquals(64, LatencyHistogram.bucketOf(65));
+        assertEquals(65, LatencyHistogram.bucketOf(66));
+        assertEquals(LatencyHistogram.NUMBER_OF_BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+        assertEquals(31, LatencyHistogram.upperBound(31));
+        assertEquals(65, LatencyHistogram.upperBound(64));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.NUMBER_OF_BUCKETS - 1));
+        for (int bucket = 0; bucket < LatencyHistogram.NUMBER_OF_BUCKETS; bucket++) {
+            long upperBound = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(upperBound));
+            if (bucket + 1 < LatencyHistogram.NUMBER_OF_BUCKETS) {
+                assertEquals(bucket + 1, LatencyHistogram.bucketOf(upperBound + 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        long[] counts = new long[LatencyHistogram.NUMBER_OF_BUCKETS];
+        counts[1] = 99;
+        counts[LatencyHistogram.bucketOf(1000)] = 1;
+        assertEquals(1, LatencyHistogram.percentile(counts, 99));
+        assertEquals(1007, LatencyHistogram.percentile(counts, 100));
+        assertEquals(0, LatencyHistogram.percentile(new long[LatencyHistogram.NUMBER_OF_BUCKETS], 99));
+    }
+
+    @Test
+    public void uniformDistributionPercentiles() {
+        Random random = new Random(1);
+        assertAccuratePercentiles(() -> 1 + random.nextInt(10_000_000));
+    }
+
+    @Test
+    public void exponentialDistributionPercentiles() {
+        Random random = new Random(2);
+        assertAccuratePercentiles(() -> (long) (-Math.log(1 - random.nextDouble()) * 50_000));
+    }
+
+    @Test
+    public void logNormalDistributionPercentiles() {
+        Random random = new Random(3);
+        assertAccuratePercentiles(() -> (long) Math.exp(10 + 2 * random.nextGaussian()));
+    }
+
+    /**
+     * Every percentile is the upper bound of the bucket of the exact percentile, so it is at most 1/32 above it.
+     */
+    private static void assertAccuratePercentiles(LongSupplier distribution) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = distribution.getAsLong();
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        long[] counts = histogram.counts();
+        for (double percentile : PERCENTILES) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long reported = LatencyHistogram.percentile(counts, percentile);
+            assertTrue(percentile + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(percentile + ": " + reported + " > " + exact, reported <= exact + exact / 32);
+        }
+    }
+}
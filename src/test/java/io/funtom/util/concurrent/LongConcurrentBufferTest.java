@@ -0,0 +1,93 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LongConcurrentBufferTest {
+
+    @Test
+    public void bufferKeepsWorkingAcrossSegments() {
+        LongConcurrentBuffer underTest = new LongConcurrentBuffer(4);
+        for (int round = 0; round < 10; round++) {
+            underTest.addAll(1, 2, 3);
+            assertArrayEquals(new long[]{1}, underTest.getAndRemove(1));
+            underTest.addAll(4, 5, 6, 7, 8, 9, 10);
+            assertArrayEquals(new long[]{2, 3, 4, 5, 6, 7, 8, 9, 10}, underTest.getAndRemoveAll());
+            assertArrayEquals(new long[0], underTest.getAndRemoveAll());
+            Assert.assertTrue(underTest.isEmpty());
+        }
+        assertArrayEquals(new long[0], underTest.getAndRemove(0));
+    }
+
+    @Test
+    public void drainToReusedArray() {
+        LongConcurrentBuffer underTest = new LongConcurrentBuffer(2);
+        long[] batch = new long[3];
+        underTest.addAll(1, 2, 3, 4, 5);
+        assertEquals(3, underTest.drainTo(batch));
+        assertArrayEquals(new long[]{1, 2, 3}, batch);
+        assertEquals(2, underTest.drainTo(batch, 1, 2));
+        assertArrayEquals(new long[]{1, 4, 5}, batch);
+        assertEquals(0, underTest.drainTo(batch));
+    }
+
+    @Test
+    public void drainToConsumer() {
+        LongConcurrentBuffer underTest = new LongConcurrentBuffer(2);
+        List<Long> consumed = new ArrayList<>();
+        underTest.addAll(1, 2, 3);
+        assertEquals(2, underTest.drain(2, consumed::add));
+        assertEquals(1, underTest.drainTo(consumed::add));
+        assertEquals(3, consumed.size());
+        assertEquals(Long.valueOf(3), consumed.get(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void drainToOutOfBounds() {
+        new LongConcurrentBuffer().drainTo(new long[2], 1, 2);
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 16;
+        final int writesPerWriter = 20000;
+        LongConcurrentBuffer underTest = new LongConcurrentBuffer(64);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final long writer = i;
+            pool.execute(() -> {
+                for (int j = 0; j < writesPerWriter; j++) {
+                    underTest.add(writer << 32 | j);
+                }
+            });
+        }
+
+        // Elements of each writer must be removed in the order they were added
+        int[] expectedNext = new int[writers];
+        long[] batch = new long[100];
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        for (int read = 0; read < writers * writesPerWriter && System.currentTimeMillis() < deadline; ) {
+            int removed = underTest.drainTo(batch);
+            for (int k = 0; k < removed; k++) {
+                assertEquals(expectedNext[(int) (batch[k] >>> 32)]++, (int) batch[k]);
+            }
+            read += removed;
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int next : expectedNext) {
+            assertEquals(writesPerWriter, next);
+        }
+        Assert.assertTrue(underTest.isEmpty());
+    }
+}
@@ -0,0 +1,148 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffHeapConcurrentBufferTest {
+
+    @Test
+    public void recordsAreReturnedInOrderAcrossSegments() {
+        OffHeapConcurrentBuffer underTest = new OffHeapConcurrentBuffer(16);
+        for (int round = 0; round < 10; round++) {
+            underTest.add(bytes("a"));
+            underTest.add(bytes("bcdefghijk"));
+            underTest.add(ByteBuffer.wrap(bytes("lm")));
+            underTest.add(new byte[0]);
+            assertEquals(Arrays.asList("a"), strings(underTest.getAndRemove(1)));
+            assertEquals(Arrays.asList("bcdefghijk", "lm", ""), strings(underTest.getAndRemoveAll()));
+            Assert.assertTrue(underTest.isEmpty());
+        }
+    }
+
+    @Test
+    public void recordsAreReadOnlySlices() {
+        OffHeapConcurrentBuffer underTest = new OffHeapConcurrentBuffer();
+        underTest.add(bytes("record"));
+        ByteBuffer record = underTest.getAndRemoveAll().get(0);
+        Assert.assertTrue(record.isReadOnly());
+        Assert.assertTrue(record.isDirect());
+        try {
+            record.put(0, (byte) 1);
+            Assert.fail();
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void segmentsFromCustomAllocator() {
+        OffHeapConcurrentBuffer underTest = new OffHeapConcurrentBuffer(32, ByteBuffer::allocate);
+        underTest.add(bytes("on heap"));
+        List<String> drained = new ArrayList<>();
+        assertEquals(1, underTest.drainTo(r -> drained.add(StandardCharsets.UTF_8.decode(r).toString())));
+        assertEquals(Arrays.asList("on heap"), drained);
+    }
+
+    @Test
+    public void committedRecordsAreReturnedWhileALaterRecordIsBeingWritten() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        OffHeapConcurrentBuffer underTest = new OffHeapConcurrentBuffer(1024, ByteBuffer::allocateDirect, () -> {
+            if (Thread.currentThread().getName().startsWith("pool")) {
+                writing.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            underTest.add(bytes("a"));
+            Future<?> slow = pool.submit(() -> underTest.add(bytes("slow")));
+            Assert.assertTrue(writing.await(10, TimeUnit.SECONDS));
+            underTest.add(bytes("b"));
+
+            // Up to the record being written, in a segment which is far from full
+            assertEquals(Arrays.asList("a"), strings(underTest.getAndRemoveAll()));
+            Assert.assertTrue(underTest.getAndRemoveAll().isEmpty());
+
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList("slow", "b"), strings(underTest.getAndRemoveAll()));
+            Assert.assertTrue(underTest.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recordLargerThanSegment() {
+        new OffHeapConcurrentBuffer(16).add(new byte[13]);
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 16;
+        final int writesPerWriter = 20000;
+        OffHeapConcurrentBuffer underTest = new OffHeapConcurrentBuffer(4096);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final int writer = i;
+            pool.execute(() -> {
+                ByteBuffer record = ByteBuffer.allocate(8);
+                for (int j = 0; j < writesPerWriter; j++) {
+                    record.clear();
+                    record.putInt(writer).putInt(j).flip();
+                    underTest.add(record);
+                }
+            });
+        }
+
+        // Records of each writer must be removed in the order they were added
+        int[] expectedNext = new int[writers];
+        int[] read = new int[1];
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (read[0] < writers * writesPerWriter && System.currentTimeMillis() < deadline) {
+            underTest.drain(100, r -> {
+                assertEquals(8, r.remaining());
+                assertEquals(expectedNext[r.getInt(0)]++, r.getInt(4));
+                read[0]++;
+            });
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int next : expectedNext) {
+            assertEquals(writesPerWriter, next);
+        }
+        Assert.assertTrue(underTest.isEmpty());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(List<ByteBuffer> records) {
+        List<String> result = new ArrayList<>();
+        for (ByteBuffer r : records) {
+            result.add(StandardCharsets.UTF_8.decode(r).toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PerKeyCacheTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    private final AtomicLong now = new AtomicLong();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void loadsOnceAndCaches() {
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(this::load, 100);
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-1", underTest.getIfPresent("A"));
+        assertNull(underTest.getIfPresent("B"));
+        assertEquals(1, underTest.size());
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(key -> {
+            await(release);
+            return load(key);
+        }, 100);
+
+        List<Future<String>> futures = new ArrayList<>();
+        Queue<Thread> waiting = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(pool.submit(() -> {
+                waiting.add(Thread.currentThread());
+                return underTest.get("A");
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            waiting.add(Thread.currentThread());
+            return underTest.getAsync("A").get();
+        }));
+        // Parked either in the load, or waiting for it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waiting.size() < 9 || !waiting.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            assertEquals("A-1", future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get("A").get());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(this::load, 1);
+        underTest.get("A");
+        underTest.get("B");
+        assertEquals(1, underTest.size());
+        assertNull(underTest.getIfPresent("A"));
+        assertEquals("A-2", underTest.get("A"));
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        PerKeyCache<Integer, Integer> underTest = new PerKeyCache<>(key -> key, 100);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(Integer.valueOf(i), underTest.get(i));
+        }
+        assertTrue(underTest.size() <= 100);
+    }
+
+    @Test
+    public void expiresAfterWrite() {
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(this::load, 100, 10, 0, TimeUnit.NANOSECONDS, Runnable::run, now::get);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(9);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(10);
+        assertNull(underTest.getIfPresent("A"));
+        assertEquals("A-2", underTest.get("A"));
+    }
+
+    @Test
+    public void refreshesAhead() {
+        List<Runnable> refreshes = new ArrayList<>();
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(this::load, 100, 100, 10, TimeUnit.NANOSECONDS, refreshes::add, now::get);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(10);
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals("A-2", underTest.get("A"));
+        assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    public void failedRefreshKeepsTheValue() {
+        AtomicInteger calls = new AtomicInteger();
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(key -> {
+            if (calls.incrementAndGet() == 2)
+                throw new IllegalStateException();
+            return key + "-" + calls.get();
+        }, 100, 100, 10, TimeUnit.NANOSECONDS, Runnable::run, now::get);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(10);
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-1", underTest.getIfPresent("A"));
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-3", underTest.get("A"));
+    }
+
+    @Test
+    public void refreshWhichLoadedNullIsRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(key -> calls.incrementAndGet() == 2 ? null : key + "-" + calls.get(),
+                100, 0, 10, TimeUnit.NANOSECONDS, Runnable::run, now::get);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(10);
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals("A-3", underTest.get("A"));
+    }
+
+    @Test
+    public void refreshWhichThrewAnErrorIsRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Runnable> refreshes = new ArrayList<>();
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(key -> {
+            if (calls.incrementAndGet() == 2)
+                throw new AssertionError();
+            return key + "-" + calls.get();
+        }, 100, 0, 10, TimeUnit.NANOSECONDS, refreshes::add, now::get);
+        assertEquals("A-1", underTest.get("A"));
+        now.set(10);
+        assertEquals("A-1", underTest.get("A"));
+        try {
+            refreshes.get(0).run();
+            fail();
+        } catch (AssertionError expected) {
+        }
+        assertEquals("A-1", underTest.get("A"));
+        assertEquals(2, refreshes.size());
+        refreshes.get(1).run();
+        assertEquals("A-3", underTest.get("A"));
+    }
+
+    @Test
+    public void invalidate() {
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(this::load, 100);
+        underTest.get("A");
+        underTest.get("B");
+        underTest.invalidate("A");
+        assertNull(underTest.getIfPresent("A"));
+        assertEquals("B-1", underTest.getIfPresent("B"));
+        underTest.invalidateAll();
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void invalidatedWhileLoadingIsNotCached() {
+        PerKeyCache<String, String>[] underTest = new PerKeyCache[1];
+        underTest[0] = new PerKeyCache<>(key -> {
+            underTest[0].invalidate(key);
+            return load(key);
+        }, 100);
+        assertEquals("A-1", underTest[0].get("A"));
+        assertNull(underTest[0].getIfPresent("A"));
+    }
+
+    @Test
+    public void invalidatingAnotherKeyWhileLoadingStillCaches() {
+        // A single segment, so both keys share it
+        PerKeyCache<String, String>[] underTest = new PerKeyCache[1];
+        underTest[0] = new PerKeyCache<>(key -> {
+            underTest[0].invalidate("B");
+            return load(key);
+        }, 1);
+        assertEquals("A-1", underTest[0].get("A"));
+        assertEquals("A-1", underTest[0].getIfPresent("A"));
+    }
+
+    @Test
+    public void nullValuesAreNotCached() {
+        PerKeyCache<String, String> underTest = new PerKeyCache<>(key -> null, 100);
+        assertNull(underTest.get("A"));
+        assertEquals(0, underTest.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaximumSize() {
+        new PerKeyCache<String, String>(this::load, 0);
+    }
+
+    private String load(String key) {
+        return key + "-" + loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
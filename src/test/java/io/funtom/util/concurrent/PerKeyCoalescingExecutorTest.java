@@ -0,0 +1,170 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerKeyCoalescingExecutorTest {
+
+    @Test
+    public void tasksQueuedWhileTheKeyIsBusyAreCoalesced() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        long[] counter = new long[1];
+
+        PerKeyCoalescingExecutor<String, Integer, Long> underTest = new PerKeyCoalescingExecutor<>((key, inputs) -> {
+            firstBatchStarted.countDown();
+            await(releaseFirstBatch);
+            batchSizes.add(inputs.size());
+            List<Long> results = new ArrayList<>();
+            for (int delta : inputs) {
+                results.add(counter[0] += delta);
+            }
+            return results;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            Future<Long> first = pool.submit(() -> underTest.execute("KEY", 1));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            List<Future<Long>> queued = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                queued.add(pool.submit(() -> underTest.execute("KEY", 1)));
+            }
+            Thread.sleep(200);
+            releaseFirstBatch.countDown();
+
+            assertEquals(Long.valueOf(1), first.get(10, TimeUnit.SECONDS));
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> f : queued) {
+                results.add(f.get(10, TimeUnit.SECONDS));
+            }
+            Collections.sort(results);
+            assertEquals(Arrays.asList(2L, 3L, 4L, 5L), results);
+            assertEquals(Arrays.asList(1, 4), batchSizes);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedCallerParksAndKeepsItsInterruptStatus() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        PerKeyCoalescingExecutor<String, Integer, Integer> underTest = new PerKeyCoalescingExecutor<>((key, inputs) -> {
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            return inputs;
+        });
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> first = pool.submit(() -> underTest.execute("KEY", 1));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+
+            boolean[] interruptedAfter = new boolean[1];
+            Thread waiter = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                underTest.execute("KEY", 2);
+                interruptedAfter[0] = Thread.currentThread().isInterrupted();
+            });
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (waiter.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+
+            releaseFirstBatch.countDown();
+            assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+            waiter.join(10000);
+            assertTrue(interruptedAfter[0]);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedBatchFailsAllItsTasks() {
+        PerKeyCoalescingExecutor<String, Integer, Integer> underTest = new PerKeyCoalescingExecutor<>((key, inputs) -> {
+            throw new IllegalStateException("failure");
+        });
+        try {
+            underTest.execute("KEY", 1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failure", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongNumberOfResults() {
+        new PerKeyCoalescingExecutor<String, Integer, Integer>((key, inputs) -> Collections.emptyList()).execute("KEY", 1);
+    }
+
+    @Test
+    public void stressTheExecutor() throws Exception {
+        final int threads = 16;
+        final int tasksPerThread = 5000;
+        final int numberOfKeys = 4;
+        long[] counters = new long[numberOfKeys];
+        AtomicInteger concurrentBatchesOfAKey = new AtomicInteger();
+        int[] running = new int[numberOfKeys];
+
+        PerKeyCoalescingExecutor<Integer, Integer, Long> underTest = new PerKeyCoalescingExecutor<>((key, inputs) -> {
+            if (++running[key] > 1) {
+                concurrentBatchesOfAKey.incrementAndGet();
+            }
+            List<Long> results = new ArrayList<>();
+            for (int delta : inputs) {
+                results.add(counters[key] += delta);
+            }
+            running[key]--;
+            return results;
+        }, 8);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < tasksPerThread; j++) {
+                        underTest.execute(ThreadLocalRandom.current().nextInt(numberOfKeys), 1);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long total = 0;
+        for (long c : counters) {
+            total += c;
+        }
+        assertEquals(threads * tasksPerThread, total);
+        assertEquals(0, concurrentBatchesOfAKey.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PerKeyRateLimitedExecutorTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(123456789);
+
+    @Test
+    public void allowsBurstAndThenTheRate() {
+        PerKeyRateLimitedExecutor<String> underTest = new PerKeyRateLimitedExecutor<>(10, 2, 4, Object::hashCode, now::get);
+        assertTrue(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        assertEquals(Optional.of(1), underTest.tryExecuteNow("KEY", () -> 1));
+        assertFalse(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        assertTrue(underTest.tryExecuteNow("OTHER", () -> {
+        }));
+
+        now.addAndGet(99 * MILLIS);
+        assertFalse(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        now.addAndGet(MILLIS);
+        assertTrue(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        assertFalse(underTest.tryExecuteNow("KEY", () -> {
+        }));
+
+        now.addAndGet(1000 * MILLIS);
+        assertTrue(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        assertTrue(underTest.tryExecuteNow("KEY", () -> {
+        }));
+        assertFalse(underTest.tryExecuteNow("KEY", () -> {
+        }));
+    }
+
+    @Test
+    public void tryExecuteRejectsNullResultOnceExecuted() {
+        PerKeyRateLimitedExecutor<String> underTest = new PerKeyRateLimitedExecutor<>(10, 1, 4, Object::hashCode, now::get);
+        AtomicInteger executions = new AtomicInteger();
+        try {
+            underTest.tryExecuteNow("KEY", () -> {
+                executions.incrementAndGet();
+                return null;
+            });
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertEquals(1, executions.get());
+        // The permit was taken by the task
+        assertEquals(Optional.empty(), underTest.tryExecuteNow("KEY", () -> 1));
+    }
+
+    @Test
+    public void tryExecuteTakesAPermitOnlyIfDueWithinTheTimeout() {
+        PerKeyRateLimitedExecutor<String> underTest = new PerKeyRateLimitedExecutor<>(1000, 1, 4, Object::hashCode, now::get);
+        assertEquals(Optional.of(1), underTest.tryExecute("KEY", () -> 1, 0, TimeUnit.MILLISECONDS));
+        assertEquals(Optional.empty(), underTest.tryExecute("KEY", () -> 2, 500, TimeUnit.MICROSECONDS));
+        assertEquals(Optional.of(3), underTest.tryExecute("KEY", () -> 3, 1, TimeUnit.MILLISECONDS));
+        assertFalse(underTest.tryExecute("KEY", () -> {
+        }, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void executeWaitsForThePermits() throws Exception {
+        PerKeyRateLimitedExecutor<String> underTest = new PerKeyRateLimitedExecutor<>(200);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger executed = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        underTest.execute("KEY", executed::incrementAndGet);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(20, executed.get());
+        // The first permit is free, the other 19 are 5 millis apart
+        assertTrue(System.nanoTime() - start >= 19 * 5 * MILLIS);
+    }
+
+    @Test
+    public void evictsIdleBuckets() {
+        PerKeyRateLimitedExecutor<Integer> underTest = new PerKeyRateLimitedExecutor<>(10, 1, 1, Object::hashCode, now::get);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(underTest.tryExecuteNow(i, () -> {
+            }));
+        }
+        assertEquals(1000, underTest.size());
+
+        // A single sweep checks a bounded number of buckets
+        now.addAndGet(100 * MILLIS);
+        for (int i = 0; i < 64; i++) {
+            assertTrue(underTest.tryExecuteNow(-1, () -> {
+            }));
+            now.addAndGet(100 * MILLIS);
+        }
+        assertTrue(underTest.size() < 1000);
+        assertTrue(underTest.size() >= 1000 - 128);
+
+        // The next sweeps resume where it stopped
+        for (int i = 0; i < 8 * 64; i++) {
+            assertTrue(underTest.tryExecuteNow(-1, () -> {
+            }));
+            now.addAndGet(100 * MILLIS);
+        }
+        assertTrue(underTest.size() <= 1);
+        assertTrue(underTest.tryExecuteNow(0, () -> {
+        }));
+        assertFalse(underTest.tryExecuteNow(0, () -> {
+        }));
+    }
+
+    @Test
+    public void interruptedCallerParksUntilItsPermitIsDue() throws Exception {
+        PerKeyRateLimitedExecutor<String> underTest = new PerKeyRateLimitedExecutor<>(5);
+        underTest.execute("KEY", () -> {
+        });
+        boolean[] interruptedAfter = new boolean[1];
+        Thread waiter = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            underTest.execute("KEY", () -> {
+            });
+            interruptedAfter[0] = Thread.currentThread().isInterrupted();
+        });
+        long start = System.nanoTime();
+        waiter.start();
+        long deadline = start + TimeUnit.SECONDS.toNanos(10);
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+
+        waiter.join(10000);
+        assertTrue(interruptedAfter[0]);
+        assertTrue(System.nanoTime() - start >= 150 * MILLIS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRate() {
+        new PerKeyRateLimitedExecutor<String>(0);
+    }
+}
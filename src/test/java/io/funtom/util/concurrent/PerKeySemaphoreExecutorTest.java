@@ -0,0 +1,109 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PerKeySemaphoreExecutorTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void limitsTheConcurrencyOfEachKey() throws Exception {
+        PerKeySemaphoreExecutor<String> underTest = new PerKeySemaphoreExecutor<>(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    underTest.execute("KEY", () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.yield();
+                        running.decrementAndGet();
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void givesUpOnlyForBusyKey() throws Exception {
+        PerKeySemaphoreExecutor<String> underTest = new PerKeySemaphoreExecutor<>(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pool.execute(() -> underTest.execute("BUSY", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertEquals(Optional.empty(), underTest.tryExecuteNow("BUSY", () -> 1));
+        assertFalse(underTest.tryExecute("BUSY", () -> {
+        }, 10, TimeUnit.MILLISECONDS));
+        assertEquals(Optional.of(1), underTest.tryExecuteNow("FREE", () -> 1));
+        assertEquals(Integer.valueOf(1), underTest.executeInterruptibly("FREE", () -> 1));
+
+        release.countDown();
+        assertTrue(underTest.tryExecute("BUSY", () -> {
+        }, 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tryExecuteRejectsNullResultOnceExecuted() throws InterruptedException {
+        PerKeySemaphoreExecutor<String> underTest = new PerKeySemaphoreExecutor<>(1);
+        AtomicInteger executions = new AtomicInteger();
+        try {
+            underTest.tryExecuteNow("KEY", () -> {
+                executions.incrementAndGet();
+                return null;
+            });
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        try {
+            underTest.tryExecute("KEY", () -> {
+                executions.incrementAndGet();
+                return null;
+            }, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertEquals(2, executions.get());
+        assertEquals(Optional.of(1), underTest.tryExecuteNow("KEY", () -> 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPermits() {
+        new PerKeySemaphoreExecutor<String>(0);
+    }
+}
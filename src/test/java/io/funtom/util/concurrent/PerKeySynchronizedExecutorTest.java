@@ -5,12 +5,15 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertTrue;
 
@@ -31,6 +34,18 @@ public class PerKeySynchronizedExecutorTest {
         assertTrue(result);
     }
 
+    @Test
+    public void executeWithCustomConcurrencyLevelAndKeyHasher() {
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>(3, String::length);
+        Assert.assertEquals("a", underTest.execute("a", () -> "a"));
+        Assert.assertEquals("bb", underTest.execute("bb", () -> "bb"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConcurrencyLevel() {
+        new PerKeySynchronizedExecutor<String>(0);
+    }
+
     @Test
     public void executeManyTasksForSameKey() throws InterruptedException {
         final PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>();
@@ -107,6 +122,100 @@ public class PerKeySynchronizedExecutorTest {
     }
 
 
+    @Test
+    public void executeForMultipleKeysInOppositeOrdersDoesNotDeadlock() throws Exception {
+        // A constant hasher puts all the keys in one segment with equal hashes, so they are only ordered by the identity of their locks
+        for (PerKeySynchronizedExecutor<Integer> underTest : Arrays.<PerKeySynchronizedExecutor<Integer>>asList(
+                new PerKeySynchronizedExecutor<>(), new PerKeySynchronizedExecutor<>(4, key -> 0))) {
+            final int ACCOUNTS = 4;
+            final int TRANSFERS_PER_THREAD = 20000;
+            final int[] balances = new int[ACCOUNTS];
+            Arrays.fill(balances, 1000);
+
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    final int thread = t;
+                    futures.add(pool.submit(() -> {
+                        for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                            int from = (thread + i) % ACCOUNTS;
+                            int to = (from + 1 + i % (ACCOUNTS - 1)) % ACCOUNTS;
+                            underTest.execute(Arrays.asList(from, to), () -> {
+                                balances[from]--;
+                                balances[to]++;
+                            });
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            Assert.assertEquals(ACCOUNTS * 1000, underTest.execute(Arrays.asList(0, 1, 2, 3), () -> IntStream.of(balances).sum()).intValue());
+        }
+    }
+
+    @Test
+    public void executeForMultipleKeysHoldsAllTheKeys() throws Exception {
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.execute(() -> underTest.execute(Arrays.asList("A", "B", "A"), () -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(Optional.empty(), underTest.tryExecuteNow("A", () -> 1));
+            Assert.assertEquals(Optional.empty(), underTest.tryExecuteNow("B", () -> 1));
+            Assert.assertEquals(Optional.of(1), underTest.tryExecuteNow("C", () -> 1));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Optional.of(1), underTest.tryExecuteNow("A", () -> 1));
+    }
+
+    @Test
+    public void readWriteExecuteForMultipleKeys() throws Exception {
+        PerKeyReadWriteSynchronizedExecutor<String> underTest = new PerKeyReadWriteSynchronizedExecutor<>();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.execute(() -> underTest.execute(Arrays.asList("R", "RW"), Arrays.asList("W", "RW"), () -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(Optional.of(1), underTest.tryReadExecuteNow("R", () -> 1));
+            Assert.assertEquals(Optional.empty(), underTest.tryWriteExecuteNow("R", () -> 1));
+            Assert.assertEquals(Optional.empty(), underTest.tryReadExecuteNow("W", () -> 1));
+            Assert.assertEquals(Optional.empty(), underTest.tryReadExecuteNow("RW", () -> 1));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Optional.of(1), underTest.tryWriteExecuteNow("RW", () -> 1));
+    }
+
     @Test
     public void stressTheExecutor() throws InterruptedException, BrokenBarrierException, ExecutionException {
         try (ExecutorStressTester tester = new ExecutorStressTester()) {
@@ -0,0 +1,166 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.*;
+
+public class QueuedReadWriteLockTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void readersShareAndWritersExclude() {
+        for (boolean phaseFair : new boolean[]{false, true}) {
+            QueuedReadWriteLock underTest = new QueuedReadWriteLock(phaseFair);
+            assertTrue(underTest.readLock().tryLock());
+            assertTrue(underTest.readLock().tryLock());
+            assertFalse(underTest.writeLock().tryLock());
+            underTest.readLock().unlock();
+            underTest.readLock().unlock();
+
+            assertTrue(underTest.writeLock().tryLock());
+            assertFalse(underTest.readLock().tryLock());
+            assertFalse(underTest.writeLock().tryLock());
+            underTest.writeLock().unlock();
+            assertTrue(underTest.readLock().tryLock());
+        }
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockWithoutLock() {
+        new QueuedReadWriteLock(true).writeLock().unlock();
+    }
+
+    @Test
+    public void waitingWriterHoldsBackNewReaders() throws Exception {
+        for (boolean phaseFair : new boolean[]{false, true}) {
+            QueuedReadWriteLock underTest = new QueuedReadWriteLock(phaseFair);
+            underTest.readLock().lock();
+            Future<?> writer = pool.submit(() -> lockAndUnlock(underTest.writeLock()));
+            awaitWaitingWriter(underTest);
+
+            Future<?> reader = pool.submit(() -> lockAndUnlock(underTest.readLock()));
+            awaitQueueLength(underTest, 2);
+            assertFalse(writer.isDone());
+            assertFalse(reader.isDone());
+
+            underTest.readLock().unlock();
+            writer.get(10, TimeUnit.SECONDS);
+            reader.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void phaseFairAdmitsWaitingReadersBeforeTheNextWriter() throws Exception {
+        assertEquals("R", lockOrderAfterWrite(true));
+    }
+
+    @Test
+    public void writerPreferringAdmitsTheNextWriterBeforeWaitingReaders() throws Exception {
+        assertEquals("W", lockOrderAfterWrite(false));
+    }
+
+    @Test
+    public void writerGivingUpAdmitsTheReadersItHeldBack() throws Exception {
+        for (boolean phaseFair : new boolean[]{false, true}) {
+            QueuedReadWriteLock underTest = new QueuedReadWriteLock(phaseFair);
+            underTest.readLock().lock();
+            Future<Boolean> writer = pool.submit(() -> underTest.writeLock().tryLock(50, TimeUnit.MILLISECONDS));
+            awaitWaitingWriter(underTest);
+
+            Future<Boolean> reader = pool.submit(() -> underTest.readLock().tryLock(10, TimeUnit.SECONDS));
+            assertFalse(writer.get(10, TimeUnit.SECONDS));
+            assertTrue(reader.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void interruptedWhileWaiting() throws Exception {
+        QueuedReadWriteLock underTest = new QueuedReadWriteLock(true);
+        underTest.writeLock().lock();
+        Throwable[] thrown = new Throwable[1];
+        Thread reader = new Thread(() -> {
+            try {
+                underTest.readLock().lockInterruptibly();
+            } catch (Throwable e) {
+                thrown[0] = e;
+            }
+        });
+        reader.start();
+        awaitQueueLength(underTest, 1);
+        reader.interrupt();
+        reader.join(10000);
+        assertTrue(thrown[0] instanceof InterruptedException);
+        assertEquals(0, underTest.getQueueLength());
+
+        underTest.writeLock().unlock();
+        assertTrue(underTest.writeLock().tryLock());
+    }
+
+    /**
+     * While a writer holds the lock, a reader and then another writer wait for it.
+     *
+     * @return "R" if the reader got the lock first after the write, "W" if the second writer did.
+     */
+    private String lockOrderAfterWrite(boolean phaseFair) throws Exception {
+        QueuedReadWriteLock underTest = new QueuedReadWriteLock(phaseFair);
+        List<String> order = new CopyOnWriteArrayList<>();
+        underTest.writeLock().lock();
+        Future<?> reader = pool.submit(() -> {
+            underTest.readLock().lock();
+            order.add("R");
+            underTest.readLock().unlock();
+        });
+        awaitQueueLength(underTest, 1);
+        Future<?> writer = pool.submit(() -> {
+            underTest.writeLock().lock();
+            order.add("W");
+            underTest.writeLock().unlock();
+        });
+        awaitQueueLength(underTest, 2);
+
+        underTest.writeLock().unlock();
+        reader.get(10, TimeUnit.SECONDS);
+        writer.get(10, TimeUnit.SECONDS);
+        return order.get(0);
+    }
+
+    private static void lockAndUnlock(Lock lock) {
+        lock.lock();
+        lock.unlock();
+    }
+
+    private static void awaitQueueLength(QueuedReadWriteLock lock, int length) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lock.getQueueLength() < length) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until new readers are held back by a waiting writer.
+     */
+    private static void awaitWaitingWriter(QueuedReadWriteLock lock) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lock.readLock().tryLock()) {
+            lock.readLock().unlock();
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadWriteSynchronizedExecutorTest {
+
+    private static final int NUMBER_OF_READERS = 6;
+    private static final int NUMBER_OF_WRITERS = 2;
+    private static final int EXECUTIONS_PER_THREAD = 50000;
+
+    @Test
+    public void executeSimpleSuppliers() {
+        for (ReadWriteLockPolicy policy : ReadWriteLockPolicy.values()) {
+            ReadWriteSynchronizedExecutor underTest = new ReadWriteSynchronizedExecutor(policy);
+            assertEquals(Integer.valueOf(1), underTest.writeExecute(() -> 1));
+            assertEquals(Integer.valueOf(2), underTest.readExecute(() -> 2));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void optimisticReadFailureIsPropagated() {
+        new ReadWriteSynchronizedExecutor(ReadWriteLockPolicy.OPTIMISTIC).readExecute(() -> {
+            throw new IllegalStateException();
+        });
+    }
+
+    @Test
+    public void readsNeverObserveAnIncompleteWrite() throws InterruptedException, ExecutionException {
+        for (ReadWriteLockPolicy policy : ReadWriteLockPolicy.values()) {
+            ReadWriteSynchronizedExecutor underTest = new ReadWriteSynchronizedExecutor(policy);
+            final long[] pair = new long[2];
+
+            ExecutorService pool = Executors.newFixedThreadPool(NUMBER_OF_READERS + NUMBER_OF_WRITERS);
+            CyclicBarrier start = new CyclicBarrier(NUMBER_OF_READERS + NUMBER_OF_WRITERS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < NUMBER_OF_WRITERS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < EXECUTIONS_PER_THREAD; i++) {
+                        underTest.writeExecute(() -> {
+                            pair[0]++;
+                            pair[1]++;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            for (int t = 0; t < NUMBER_OF_READERS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < EXECUTIONS_PER_THREAD; i++) {
+                        long diff = underTest.readExecute(() -> pair[0] - pair[1]);
+                        assertEquals(policy.name(), 0, diff);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            pool.shutdown();
+            Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(NUMBER_OF_WRITERS * EXECUTIONS_PER_THREAD, (long) underTest.readExecute(() -> pair[0]));
+        }
+    }
+}
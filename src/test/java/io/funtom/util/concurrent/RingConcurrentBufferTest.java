@@ -0,0 +1,137 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class RingConcurrentBufferTest {
+
+    @Test
+    public void capacityIsRoundedToPowerOfTwo() {
+        assertEquals(8, new RingConcurrentBuffer<Integer>(5).getCapacity());
+    }
+
+    @Test
+    public void bufferKeepsWorkingAcrossTheRingBoundary() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(4);
+        for (int round = 0; round < 10; round++) {
+            underTest.addAll(Arrays.asList(1, 2, 3));
+            assertEquals(Collections.singletonList(1), underTest.getAndRemove(1));
+            underTest.add(4);
+            assertEquals(Arrays.asList(2, 3, 4), underTest.getAndRemoveAll());
+            assertEquals(Collections.emptyList(), underTest.getAndRemoveAll());
+        }
+        assertEquals(Collections.emptyList(), underTest.getAndRemove(0));
+    }
+
+    @Test
+    public void drainToReusedListAcrossTheRingBoundary() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(4);
+        List<Integer> batch = new ArrayList<>();
+        for (int round = 0; round < 10; round++) {
+            batch.clear();
+            underTest.addAll(Arrays.asList(1, 2, 3));
+            assertEquals(2, underTest.drainTo(batch, 2));
+            assertEquals(1, underTest.drain(2, batch::add));
+            assertEquals(Arrays.asList(1, 2, 3), batch);
+        }
+    }
+
+    @Test
+    public void failingConsumerLeavesTheRestInTheBuffer() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(4, OverflowPolicy.FAIL);
+        underTest.addAll(Arrays.asList(1, 2, 3));
+        try {
+            underTest.drainTo((Integer e) -> {
+                if (e == 2) throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        underTest.addAll(Arrays.asList(4, 5, 6));
+        assertEquals(Arrays.asList(3, 4, 5, 6), underTest.getAndRemoveAll());
+    }
+
+    @Test
+    public void awaitAndRemoveWakesUpOnAdditions() throws Exception {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(4);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    underTest.add(i);
+                }
+            });
+            List<Integer> removed = new ArrayList<>();
+            while (removed.size() < 1000) {
+                Assert.assertTrue(underTest.awaitAndDrainTo(removed, 1, 1000, 10, TimeUnit.SECONDS) > 0);
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(Integer.valueOf(i), removed.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsWhenFull() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(2, OverflowPolicy.FAIL);
+        underTest.addAll(Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void dropsNewestWhenFull() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(2, OverflowPolicy.DROP_NEWEST);
+        underTest.addAll(Arrays.asList(1, 2, 3, 4));
+        assertEquals(2, underTest.getDroppedCount());
+        assertEquals(Arrays.asList(1, 2), underTest.getAndRemoveAll());
+    }
+
+    @Test
+    public void dropsOldestWhenFull() {
+        RingConcurrentBuffer<Integer> underTest = new RingConcurrentBuffer<>(2, OverflowPolicy.DROP_OLDEST);
+        underTest.addAll(Arrays.asList(1, 2, 3, 4, 5));
+        assertEquals(3, underTest.getDroppedCount());
+        assertEquals(Arrays.asList(4, 5), underTest.getAndRemoveAll());
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 16;
+        final int writesPerWriter = 20000;
+        RingConcurrentBuffer<int[]> underTest = new RingConcurrentBuffer<>(256);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final int writer = i;
+            pool.execute(() -> {
+                for (int j = 0; j < writesPerWriter; j++) {
+                    underTest.add(new int[]{writer, j});
+                }
+            });
+        }
+
+        // Elements of each writer must be removed in the order they were added
+        int[] expectedNext = new int[writers];
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        for (int read = 0; read < writers * writesPerWriter && System.currentTimeMillis() < deadline; ) {
+            List<int[]> batch = underTest.getAndRemove(100);
+            for (int[] e : batch) {
+                assertEquals(expectedNext[e[0]]++, e[1]);
+            }
+            read += batch.size();
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int next : expectedNext) {
+            assertEquals(writesPerWriter, next);
+        }
+        assertEquals(Collections.emptyList(), underTest.getAndRemoveAll());
+    }
+}
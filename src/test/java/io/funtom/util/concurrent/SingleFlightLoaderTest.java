@@ -0,0 +1,151 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightLoaderTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLoadsOfTheSameKeyShareOneLoad() throws Exception {
+        SingleFlightLoader<String, Integer> underTest = new SingleFlightLoader<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> first = pool.submit(() -> underTest.load("KEY", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return 42;
+        }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        List<Future<Integer>> others = new ArrayList<>();
+        Queue<Thread> waiting = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 4; i++) {
+            others.add(pool.submit(() -> {
+                waiting.add(Thread.currentThread());
+                return underTest.load("KEY", key -> loads.incrementAndGet());
+            }));
+        }
+        CompletableFuture<Integer> async = underTest.loadAsync("KEY", key -> CompletableFuture.completedFuture(loads.incrementAndGet()));
+        awaitWaiting(waiting, 4);
+        release.countDown();
+
+        assertEquals(Integer.valueOf(42), first.get(10, TimeUnit.SECONDS));
+        for (Future<Integer> other : others) {
+            assertEquals(Integer.valueOf(42), other.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(Integer.valueOf(42), async.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void completedLoadIsForgotten() {
+        SingleFlightLoader<String, Integer> underTest = new SingleFlightLoader<>();
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), underTest.load("KEY", key -> loads.incrementAndGet()));
+        assertEquals(Integer.valueOf(2), underTest.load("KEY", key -> loads.incrementAndGet()));
+        assertEquals(0, underTest.size());
+    }
+
+    @Test
+    public void differentKeysLoadConcurrently() throws Exception {
+        SingleFlightLoader<String, String> underTest = new SingleFlightLoader<>();
+        CountDownLatch bothLoading = new CountDownLatch(2);
+        Future<String> a = pool.submit(() -> underTest.load("A", key -> {
+            bothLoading.countDown();
+            await(bothLoading);
+            return key;
+        }));
+        Future<String> b = pool.submit(() -> underTest.load("B", key -> {
+            bothLoading.countDown();
+            await(bothLoading);
+            return key;
+        }));
+        assertEquals("A", a.get(10, TimeUnit.SECONDS));
+        assertEquals("B", b.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failureIsShared() throws Exception {
+        SingleFlightLoader<String, Integer> underTest = new SingleFlightLoader<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> first = pool.submit(() -> underTest.load("KEY", key -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalStateException("backend down");
+        }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        Queue<Thread> waiting = new ConcurrentLinkedQueue<>();
+        Future<Integer> second = pool.submit(() -> {
+            waiting.add(Thread.currentThread());
+            return underTest.load("KEY", key -> 1);
+        });
+        awaitWaiting(waiting, 1);
+        release.countDown();
+
+        for (Future<Integer> future : new Future[]{first, second}) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(Integer.valueOf(1), underTest.load("KEY", key -> 1));
+    }
+
+    @Test
+    public void asyncLoaderFailure() {
+        SingleFlightLoader<String, Integer> underTest = new SingleFlightLoader<>();
+        CompletableFuture<Integer> result = underTest.loadAsync("KEY", key -> {
+            throw new IllegalStateException();
+        });
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, underTest.size());
+    }
+
+    /**
+     * Waits until the threads are parked, waiting for the load they joined.
+     */
+    private static void awaitWaiting(Queue<Thread> threads, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (threads.size() < count || !threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
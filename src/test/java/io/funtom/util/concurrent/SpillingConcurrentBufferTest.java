@@ -0,0 +1,220 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpillingConcurrentBufferTest {
+
+    static final Serializer<Integer> INTEGER_SERIALIZER = new Serializer<Integer>() {
+        @Override
+        public byte[] serialize(Integer element) {
+            return ByteBuffer.allocate(4).putInt(element).array();
+        }
+
+        @Override
+        public Integer deserialize(ByteBuffer bytes) {
+            return bytes.getInt(bytes.position());
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void elementsAboveTheHighWaterMarkAreSpilledAndReadBackInOrder() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("spill");
+        try (SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(2, INTEGER_SERIALIZER, directory, 32)) {
+            for (int i = 0; i < 20; i++) {
+                underTest.add(i);
+            }
+            assertEquals(18, underTest.getSpilledCount());
+            Assert.assertTrue(underTest.getNumberOfSegments() > 1);
+
+            assertEquals(Arrays.asList(0, 1, 2), underTest.getAndRemove(3));
+            List<Integer> rest = underTest.getAndRemoveAll();
+            assertEquals(17, rest.size());
+            for (int i = 0; i < rest.size(); i++) {
+                assertEquals(Integer.valueOf(i + 3), rest.get(i));
+            }
+
+            Assert.assertTrue(underTest.isEmpty());
+            assertEquals(0, underTest.getNumberOfSegments());
+            assertEquals(0, countFiles(directory));
+
+            // Back in memory once the spilled elements are removed
+            underTest.add(20);
+            assertEquals(18, underTest.getSpilledCount());
+            assertEquals(Collections.singletonList(20), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void elementLargerThanSegmentIsSpilledToItsOwnSegment() throws Exception {
+        Serializer<String> serializer = new Serializer<String>() {
+            @Override
+            public byte[] serialize(String element) {
+                return element.getBytes();
+            }
+
+            @Override
+            public String deserialize(ByteBuffer bytes) {
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                return new String(copy);
+            }
+        };
+        char[] large = new char[100];
+        Arrays.fill(large, 'x');
+        try (SpillingConcurrentBuffer<String> underTest = new SpillingConcurrentBuffer<>(0, serializer, folder.getRoot().toPath(), 16)) {
+            underTest.add("small");
+            underTest.add(new String(large));
+            assertEquals(Arrays.asList("small", new String(large)), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void spillingProducersDoNotWaitForTheConsumer() throws Exception {
+        CountDownLatch consuming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try (SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(0, INTEGER_SERIALIZER, folder.getRoot().toPath())) {
+            underTest.addAll(Arrays.asList(1, 2));
+            List<Integer> consumed = new ArrayList<>();
+            Future<Integer> consumer = pool.submit(() -> underTest.drain(10, e -> {
+                consumed.add(e);
+                consuming.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }));
+            Assert.assertTrue(consuming.await(10, TimeUnit.SECONDS));
+
+            pool.submit(() -> underTest.add(3)).get(10, TimeUnit.SECONDS);
+            release.countDown();
+            assertEquals(Integer.valueOf(2), consumer.get(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(1, 2), consumed);
+            assertEquals(Collections.singletonList(3), underTest.getAndRemoveAll());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedConsumerLeavesTheRestOfTheSpilledElements() {
+        try (SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(0, INTEGER_SERIALIZER, folder.getRoot().toPath())) {
+            underTest.addAll(Arrays.asList(1, 2, 3));
+            List<Integer> consumed = new ArrayList<>();
+            try {
+                underTest.drain(10, e -> {
+                    if (e == 2)
+                        throw new IllegalStateException();
+                    consumed.add(e);
+                });
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+            }
+            assertEquals(Collections.singletonList(1), consumed);
+            assertEquals(Collections.singletonList(3), underTest.getAndRemoveAll());
+        }
+    }
+
+    @Test
+    public void closeDeletesTheSegmentFiles() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(0, INTEGER_SERIALIZER, directory);
+        underTest.add(1);
+        assertEquals(1, countFiles(directory));
+        underTest.close();
+        assertEquals(0, countFiles(directory));
+    }
+
+    @Test
+    public void closeWhileDrainingDeletesTheSegmentFilesOnceTheDrainReturns() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(0, INTEGER_SERIALIZER, directory);
+        underTest.add(1);
+        underTest.add(2);
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        List<Integer> drained = new ArrayList<>();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> drain = pool.submit(() -> underTest.drain(2, element -> {
+                drained.add(element);
+                draining.countDown();
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assert.assertTrue(draining.await(10, TimeUnit.SECONDS));
+            underTest.close();
+            // The segment is still mapped for the consumer
+            assertEquals(1, countFiles(directory));
+            closed.countDown();
+
+            assertEquals(Integer.valueOf(2), drain.get(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(1, 2), drained);
+            assertEquals(0, countFiles(directory));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 8;
+        final int writesPerWriter = 10000;
+        try (SpillingConcurrentBuffer<Integer> underTest = new SpillingConcurrentBuffer<>(100, INTEGER_SERIALIZER, folder.getRoot().toPath(), 4096)) {
+            ExecutorService pool = Executors.newFixedThreadPool(writers);
+            for (int i = 0; i < writers; i++) {
+                final int writer = i;
+                pool.execute(() -> {
+                    for (int j = 0; j < writesPerWriter; j++) {
+                        underTest.add(writer * writesPerWriter + j);
+                    }
+                });
+            }
+
+            // Elements of each writer must be removed in the order they were added
+            int[] expectedNext = new int[writers];
+            List<Integer> batch = new ArrayList<>();
+            for (int read = 0; read < writers * writesPerWriter; ) {
+                batch.clear();
+                Assert.assertTrue(underTest.awaitAndDrainTo(batch, 1, 1000, 10, TimeUnit.SECONDS) > 0);
+                for (int e : batch) {
+                    assertEquals(expectedNext[e / writesPerWriter]++, e % writesPerWriter);
+                }
+                read += batch.size();
+            }
+
+            pool.shutdown();
+            Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertTrue(underTest.isEmpty());
+        }
+    }
+
+    private static long countFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.funtom.util.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class StripedConcurrentBufferTest {
+
+    @Test
+    public void elementsOfOneThreadAreRemovedInOrder() {
+        StripedConcurrentBuffer<Integer> underTest = new StripedConcurrentBuffer<>(4);
+        underTest.addAll(Arrays.asList(1, 2, 3));
+        underTest.add(4);
+        assertEquals(Arrays.asList(1, 2), underTest.getAndRemove(2));
+        assertEquals(Arrays.asList(3, 4), underTest.getAndRemoveAll());
+        Assert.assertTrue(underTest.isEmpty());
+    }
+
+    @Test
+    public void numberOfStripesIsRoundedToPowerOfTwo() {
+        assertEquals(8, new StripedConcurrentBuffer<Integer>(5).getNumberOfStripes());
+    }
+
+    @Test
+    public void boundedStripesApplyTheOverflowPolicy() {
+        StripedConcurrentBuffer<Integer> underTest = new StripedConcurrentBuffer<>(4, 2, OverflowPolicy.DROP_OLDEST);
+        underTest.addAll(Arrays.asList(1, 2, 3, 4));
+        assertEquals(2, underTest.getDroppedCount());
+        assertEquals(Arrays.asList(3, 4), underTest.getAndRemoveAll());
+    }
+
+    @Test
+    public void stressTheBuffer() throws Exception {
+        final int writers = 16;
+        final int writesPerWriter = 20000;
+        StripedConcurrentBuffer<int[]> underTest = new StripedConcurrentBuffer<>(4, 64, OverflowPolicy.BLOCK);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            final int writer = i;
+            pool.execute(() -> {
+                for (int j = 0; j < writesPerWriter; j++) {
+                    underTest.add(new int[]{writer, j});
+                }
+            });
+        }
+
+        // Elements of each writer must be removed in the order they were added
+        int[] expectedNext = new int[writers];
+        List<int[]> batch = new ArrayList<>();
+        for (int read = 0; read < writers * writesPerWriter; ) {
+            batch.clear();
+            Assert.assertTrue(underTest.awaitAndDrainTo(batch, 1, 100, 10, TimeUnit.SECONDS) > 0);
+            for (int[] e : batch) {
+                assertEquals(expectedNext[e[0]]++, e[1]);
+            }
+            read += batch.size();
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for (int next : expectedNext) {
+            assertEquals(writesPerWriter, next);
+        }
+        Assert.assertTrue(underTest.isEmpty());
+    }
+}
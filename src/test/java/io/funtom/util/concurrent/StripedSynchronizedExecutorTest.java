@@ -0,0 +1,98 @@
+package io.funtom.util.concurrent;
+
+import io.funtom.util.concurrent.helper.MutableClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+public class StripedSynchronizedExecutorTest {
+
+    private static final int NUMBER_OF_KEYS = 100;
+    private static final int NUMBER_OF_THREADS = 20;
+    private static final int EXECUTIONS_PER_THREAD = 5000;
+
+    @Test
+    public void executeSimpleRunnable() {
+        StripedSynchronizedExecutor<Integer> underTest = new StripedSynchronizedExecutor<>(16);
+        final AtomicBoolean bool = new AtomicBoolean(false);
+        underTest.execute(1, () -> bool.set(true));
+        assertTrue(bool.get());
+    }
+
+    @Test
+    public void executeSimpleSupplier() {
+        StripedReadWriteSynchronizedExecutor<Integer> underTest = new StripedReadWriteSynchronizedExecutor<>(16);
+        assertTrue(underTest.readExecute(1, () -> true));
+        assertTrue(underTest.writeExecute(1, () -> true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNumberOfStripes() {
+        new StripedSynchronizedExecutor<Integer>(-1);
+    }
+
+    @Test
+    public void stressTheExecutor() throws InterruptedException, ExecutionException {
+        StripedSynchronizedExecutor<Integer> underTest = new StripedSynchronizedExecutor<>(8);
+        stress((key, mutation) -> underTest.execute(key, mutation));
+    }
+
+    @Test
+    public void stressTheExecutorWithPaddedLocksOfEveryPolicy() throws InterruptedException, ExecutionException {
+        for (LockPolicy policy : LockPolicy.values()) {
+            StripedSynchronizedExecutor<Integer> underTest = new StripedSynchronizedExecutor<>(8, Object::hashCode, policy);
+            stress((key, mutation) -> underTest.execute(key, mutation));
+        }
+    }
+
+    @Test
+    public void stressTheReadWriteExecutor() throws InterruptedException, ExecutionException {
+        StripedReadWriteSynchronizedExecutor<Integer> underTest = new StripedReadWriteSynchronizedExecutor<>(8);
+        stress((key, mutation) -> underTest.writeExecute(key, mutation));
+    }
+
+    private void stress(KeyedExecutor executor) throws InterruptedException, ExecutionException {
+        MutableClass[] mutableInstances = new MutableClass[NUMBER_OF_KEYS];
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            mutableInstances[i] = new MutableClass();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        CyclicBarrier start = new CyclicBarrier(NUMBER_OF_THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < EXECUTIONS_PER_THREAD; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    executor.accept(key, () -> {
+                        mutableInstances[key].assertConsistency();
+                        mutableInstances[key].executeNonAtomicMutation();
+                        mutableInstances[key].assertConsistency();
+                    });
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (MutableClass instance : mutableInstances) {
+            instance.assertNumberOfMutations(NUMBER_OF_THREADS * EXECUTIONS_PER_THREAD / NUMBER_OF_KEYS);
+        }
+    }
+
+    private interface KeyedExecutor {
+        void accept(int key, Runnable mutation);
+    }
+}
@@ -0,0 +1,114 @@
+package io.funtom.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class SynchronizedExecutorTest {
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        release.countDown();
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void tryExecuteWhenFree() throws InterruptedException {
+        SynchronizedExecutor underTest = new SynchronizedExecutor();
+        assertEquals(Optional.of(1), underTest.tryExecuteNow(() -> 1));
+        assertEquals(Optional.of(2), underTest.tryExecute(() -> 2, 1, TimeUnit.SECONDS));
+        assertTrue(underTest.tryExecuteNow(() -> {
+        }));
+        assertEquals(Integer.valueOf(3), underTest.executeInterruptibly(() -> 3));
+    }
+
+    @Test
+    public void tryExecuteGivesUpWhenBusy() throws Exception {
+        SynchronizedExecutor underTest = new SynchronizedExecutor();
+        holdInBackground(underTest::execute);
+
+        AtomicBoolean executed = new AtomicBoolean();
+        assertFalse(underTest.tryExecuteNow(() -> executed.set(true)));
+        assertEquals(Optional.empty(), underTest.tryExecuteNow(() -> 1));
+        assertFalse(underTest.tryExecute(() -> executed.set(true), 10, TimeUnit.MILLISECONDS));
+        assertEquals(Optional.empty(), underTest.tryExecute(() -> 1, 10, TimeUnit.MILLISECONDS));
+        assertFalse(executed.get());
+    }
+
+    @Test
+    public void tryExecuteRejectsNullResultOnceExecuted() throws InterruptedException {
+        SynchronizedExecutor underTest = new SynchronizedExecutor();
+        AtomicBoolean executed = new AtomicBoolean();
+        try {
+            underTest.tryExecuteNow(() -> {
+                executed.set(true);
+                return null;
+            });
+            fail();
+        } catch (NullPointerException e) {
+            assertTrue(executed.get());
+        }
+        try {
+            underTest.tryExecute(() -> null, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertEquals(Optional.of(1), underTest.tryExecuteNow(() -> 1));
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void executeInterruptiblyWhenInterrupted() throws Exception {
+        SynchronizedExecutor underTest = new SynchronizedExecutor();
+        holdInBackground(underTest::execute);
+        Thread.currentThread().interrupt();
+        underTest.executeInterruptibly(() -> fail("Should not be executed"));
+    }
+
+    @Test
+    public void perKeyTryExecuteGivesUpOnlyForBusyKey() throws Exception {
+        PerKeySynchronizedExecutor<String> underTest = new PerKeySynchronizedExecutor<>();
+        holdInBackground(task -> underTest.execute("BUSY", task));
+
+        assertEquals(Optional.empty(), underTest.tryExecuteNow("BUSY", () -> 1));
+        assertFalse(underTest.tryExecute("BUSY", () -> {
+        }, 10, TimeUnit.MILLISECONDS));
+        assertEquals(Optional.of(1), underTest.tryExecuteNow("FREE", () -> 1));
+    }
+
+    @Test
+    public void perKeyReadWriteTryExecute() throws Exception {
+        PerKeyReadWriteSynchronizedExecutor<String> underTest = new PerKeyReadWriteSynchronizedExecutor<>();
+        holdInBackground(task -> underTest.readExecute("KEY", task));
+
+        assertEquals(Optional.of(1), underTest.tryReadExecuteNow("KEY", () -> 1));
+        assertEquals(Optional.empty(), underTest.tryWriteExecute("KEY", () -> 1, 10, TimeUnit.MILLISECONDS));
+        assertTrue(underTest.tryWriteExecuteNow("OTHER", () -> {
+        }));
+    }
+
+    /**
+     * Executes a task that blocks until the test ends, and waits until it started.
+     */
+    private void holdInBackground(Consumer<Runnable> executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> executor.accept(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,98 @@
+package io.funtom.util.concurrent;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the per-key executors on virtual threads, with tasks that park while holding the key,
+ * and counts the jdk.VirtualThreadPinned events reported by JFR.
+ */
+public class VirtualThreadPinningTest {
+
+    private static final int NUMBER_OF_CALLERS = 2000;
+    private static final int NUMBER_OF_KEYS = 50;
+
+    @Test
+    public void detectsPinningOfSynchronizedBlocks() throws Exception {
+        // Since JDK 24 (JEP 491) synchronized no longer pins, so there is nothing to detect
+        assumeTrue(Runtime.version().feature() < 24);
+
+        final Object[] monitors = new Object[NUMBER_OF_KEYS];
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            monitors[i] = new Object();
+        }
+
+        int pinned = countPinnedEvents(key -> {
+            synchronized (monitors[key]) {
+                parkBriefly();
+            }
+        });
+        assertTrue(pinned > 0);
+    }
+
+    @Test
+    public void perKeySynchronizedExecutorNeverPins() throws Exception {
+        PerKeySynchronizedExecutor<Integer> underTest = new PerKeySynchronizedExecutor<>();
+        assertEquals(0, countPinnedEvents(key -> underTest.execute(key, VirtualThreadPinningTest::parkBriefly)));
+    }
+
+    @Test
+    public void perKeyReadWriteSynchronizedExecutorNeverPins() throws Exception {
+        PerKeyReadWriteSynchronizedExecutor<Integer> underTest = new PerKeyReadWriteSynchronizedExecutor<>();
+        assertEquals(0, countPinnedEvents(key -> {
+            if (key % 2 == 0) {
+                underTest.readExecute(key, VirtualThreadPinningTest::parkBriefly);
+            } else {
+                underTest.writeExecute(key, VirtualThreadPinningTest::parkBriefly);
+            }
+        }));
+    }
+
+    @Test
+    public void stripedSynchronizedExecutorNeverPins() throws Exception {
+        StripedSynchronizedExecutor<Integer> underTest = new StripedSynchronizedExecutor<>(16);
+        assertEquals(0, countPinnedEvents(key -> underTest.execute(key, VirtualThreadPinningTest::parkBriefly)));
+    }
+
+    private static int countPinnedEvents(IntConsumer caller) throws Exception {
+        AtomicInteger pinned = new AtomicInteger();
+        try (RecordingStream events = new RecordingStream()) {
+            events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            events.onEvent("jdk.VirtualThreadPinned", e -> pinned.incrementAndGet());
+            events.startAsync();
+
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < NUMBER_OF_CALLERS; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    futures.add(pool.submit(() -> caller.accept(key)));
+                }
+                for (Future<?> f : futures) {
+                    f.get(1, TimeUnit.MINUTES);
+                }
+            }
+
+            events.stop();
+        }
+        return pinned.get();
+    }
+
+    private static void parkBriefly() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}